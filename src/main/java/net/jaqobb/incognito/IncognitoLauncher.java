@@ -30,8 +30,11 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.instrument.Instrumentation;
 
+import net.jaqobb.incognito.agent.IncognitoAgent;
 import net.jaqobb.incognito.json.JSONException;
 import net.jaqobb.incognito.json.JSONObject;
+import net.jaqobb.incognito.metrics.JFREvents;
+import net.jaqobb.incognito.metrics.MetricsRegistry;
 import net.jaqobb.incognito.utils.IncognitoUtils;
 import net.jaqobb.incognito.utils.IncognitoWindowUtils;
 
@@ -54,7 +57,11 @@ public final class IncognitoLauncher
         JSONObject profilesJson;
         try
         {
+            long start = System.nanoTime();
             json = new JSONObject(IncognitoUtils.readFile(profiles));
+            long elapsed = System.nanoTime() - start;
+            MetricsRegistry.global().histogram("profiles.load.nanos").record(elapsed);
+            JFREvents.emit(JFREvents.Type.PROFILE_READ, elapsed, profiles.getPath(), profiles.length());
             profilesJson = json.getJSONObject("profiles");
         }
         catch (JSONException | IOException ex)
@@ -86,5 +93,6 @@ public final class IncognitoLauncher
 
     public static void launchAgent(String args, Instrumentation inst)
     {
+        IncognitoAgent.start(args, inst);
     }
 }
\ No newline at end of file
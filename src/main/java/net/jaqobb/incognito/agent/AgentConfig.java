@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.agent;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.jaqobb.incognito.utils.IncognitoUtils;
+
+public final class AgentConfig
+{
+    private final Map<String, String> options;
+
+    private AgentConfig(Map<String, String> options)
+    {
+        this.options = options;
+    }
+
+    public static AgentConfig parse(String args)
+    {
+        Map<String, String> options = new LinkedHashMap<>(16);
+        if (args != null)
+        {
+            for (String entry : args.split(","))
+            {
+                entry = entry.trim();
+                if (entry.isEmpty())
+                {
+                    continue;
+                }
+                int separator = entry.indexOf('=');
+                if (separator < 0)
+                {
+                    options.put(entry, "true");
+                }
+                else
+                {
+                    options.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+                }
+            }
+        }
+        return new AgentConfig(Collections.unmodifiableMap(options));
+    }
+
+    public boolean has(String key)
+    {
+        return this.options.containsKey(key);
+    }
+
+    public String getString(String key, String defaultValue)
+    {
+        String value = this.options.get(key);
+        return (value != null) ? value : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue)
+    {
+        String value = this.options.get(key);
+        return (value != null) ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    public long getLong(String key, long defaultValue)
+    {
+        String value = this.options.get(key);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException ex)
+        {
+            return defaultValue;
+        }
+    }
+
+    public File getWorkingDirectory()
+    {
+        String value = this.options.get("workingDir");
+        return (value != null) ? new File(value) : IncognitoUtils.getWorkingDirectory();
+    }
+
+    public Map<String, String> asMap()
+    {
+        return this.options;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AgentConfig" + this.options;
+    }
+}
\ No newline at end of file
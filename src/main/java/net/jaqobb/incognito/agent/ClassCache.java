@@ -0,0 +1,354 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.agent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public final class ClassCache
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() ->
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private static final long STALE_MILLIS = TimeUnit.DAYS.toMillis(7L);
+
+    private final Path              directory;
+    private final String            build;
+    private final long              maxBytes;
+    private final Map<String, Long> entries = new LinkedHashMap<>(64, 0.75F, true);
+    private       long              size;
+
+    // Entries live in a subdirectory named after the agent build, and the build is part of every
+    // key, so bytes woven by an older agent are never replayed against newer runtime classes.
+    // Directories of other builds are only deleted once nothing has touched them for a week, as
+    // another JVM may still be running that build. The current directory is kept within maxBytes
+    // by evicting the least recently used entries; a JVM sharing the same build accounts only for
+    // the entries it has seen, so the directory can overshoot until the next startup trims it.
+    public ClassCache(File root, String build, long maxBytes)
+    {
+        this.directory = root.toPath().resolve(build);
+        this.build = build;
+        this.maxBytes = maxBytes;
+        this.prune(root.toPath());
+    }
+
+    // Identifies the agent build by hashing the jar the given class was loaded from; returns null
+    // when it was not loaded from a jar, since an exploded class directory can change without
+    // anything to key on.
+    public static String buildId(Class<?> clazz)
+    {
+        CodeSource source = clazz.getProtectionDomain().getCodeSource();
+        if ((source == null) || (source.getLocation() == null))
+        {
+            return null;
+        }
+        try
+        {
+            Path jar = Paths.get(source.getLocation().toURI());
+            if (! Files.isRegularFile(jar))
+            {
+                return null;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            try (InputStream in = Files.newInputStream(jar))
+            {
+                int read;
+                while ((read = in.read(buffer)) > 0)
+                {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return hex(digest.digest()).substring(0, 16);
+        }
+        catch (IOException | URISyntaxException | NoSuchAlgorithmException | IllegalArgumentException ex)
+        {
+            System.err.println("[Incognito] Could not identify the agent build: " + ex);
+            return null;
+        }
+    }
+
+    public File getDirectory()
+    {
+        return this.directory.toFile();
+    }
+
+    public String getBuild()
+    {
+        return this.build;
+    }
+
+    public long getSize()
+    {
+        synchronized (this.entries)
+        {
+            return this.size;
+        }
+    }
+
+    public String key(String className, String version, byte[] classfileBuffer)
+    {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        digest.update(classfileBuffer);
+        digest.update((byte) 0);
+        digest.update(className.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(version.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(this.build.getBytes(StandardCharsets.UTF_8));
+        return hex(digest.digest());
+    }
+
+    private static String hex(byte[] hash)
+    {
+        char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i += 1)
+        {
+            chars[i * 2] = HEX_DIGITS[(hash[i] >>> 4) & 0xF];
+            chars[(i * 2) + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private void prune(Path root)
+    {
+        if (! Files.isDirectory(root))
+        {
+            return;
+        }
+        long staleBefore = System.currentTimeMillis() - STALE_MILLIS;
+        try (Stream<Path> entries = Files.list(root))
+        {
+            for (Path entry : (Iterable<Path>) entries::iterator)
+            {
+                if (entry.equals(this.directory))
+                {
+                    Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+                }
+                else if (Files.getLastModifiedTime(entry).toMillis() < staleBefore)
+                {
+                    delete(entry);
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            System.err.println("[Incognito] Could not prune the class cache: " + ex);
+        }
+        if (! Files.isDirectory(this.directory))
+        {
+            return;
+        }
+        Map<Path, BasicFileAttributes> files = new HashMap<>(64);
+        try (Stream<Path> entries = Files.list(this.directory))
+        {
+            for (Path file : (Iterable<Path>) entries::iterator)
+            {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile() && file.getFileName().toString().endsWith(".class"))
+                {
+                    files.put(file, attributes);
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            System.err.println("[Incognito] Could not prune the class cache: " + ex);
+        }
+        List<Path> oldest = new ArrayList<>(files.keySet());
+        oldest.sort(Comparator.comparing(file -> files.get(file).lastModifiedTime()));
+        List<String> evicted;
+        synchronized (this.entries)
+        {
+            for (Path file : oldest)
+            {
+                String name = file.getFileName().toString();
+                this.entries.put(name.substring(0, name.length() - ".class".length()), files.get(file).size());
+                this.size += files.get(file).size();
+            }
+            evicted = this.evict(null);
+        }
+        this.delete(evicted);
+    }
+
+    // Drops least recently used entries until the cache fits, never the one just stored; the
+    // caller deletes the returned files outside the lock.
+    private List<String> evict(String keep)
+    {
+        List<String> evicted = new ArrayList<>(4);
+        Iterator<Entry<String, Long>> iterator = this.entries.entrySet().iterator();
+        while ((this.size > this.maxBytes) && iterator.hasNext())
+        {
+            Entry<String, Long> entry = iterator.next();
+            if (! entry.getKey().equals(keep))
+            {
+                iterator.remove();
+                this.size -= entry.getValue();
+                evicted.add(entry.getKey());
+            }
+        }
+        return evicted;
+    }
+
+    private void delete(List<String> keys)
+    {
+        for (String key : keys)
+        {
+            try
+            {
+                Files.deleteIfExists(this.directory.resolve(key + ".class"));
+            }
+            catch (IOException ignored)
+            {
+            }
+        }
+    }
+
+    private static void delete(Path path) throws IOException
+    {
+        if (Files.isDirectory(path))
+        {
+            try (Stream<Path> entries = Files.list(path))
+            {
+                for (Path entry : (Iterable<Path>) entries::iterator)
+                {
+                    delete(entry);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+
+    public byte[] load(String key)
+    {
+        Path file = this.directory.resolve(key + ".class");
+        byte[] bytes = null;
+        if (Files.isRegularFile(file))
+        {
+            try
+            {
+                bytes = Files.readAllBytes(file);
+            }
+            catch (IOException ignored)
+            {
+            }
+        }
+        this.track(key, bytes);
+        return bytes;
+    }
+
+    // Records a hit as the most recent use, including entries another JVM of the same build
+    // stored, and forgets entries whose file has gone.
+    private void track(String key, byte[] bytes)
+    {
+        List<String> evicted;
+        synchronized (this.entries)
+        {
+            Long previous = (bytes != null) ? this.entries.put(key, (long) bytes.length) : this.entries.remove(key);
+            this.size += ((bytes != null) ? bytes.length : 0L) - ((previous != null) ? previous : 0L);
+            evicted = this.evict(key);
+        }
+        this.delete(evicted);
+    }
+
+    public void store(String key, byte[] bytes)
+    {
+        if (bytes.length > this.maxBytes)
+        {
+            return;
+        }
+        Path temp = null;
+        try
+        {
+            Files.createDirectories(this.directory);
+            temp = Files.createTempFile(this.directory, key, ".tmp");
+            Files.write(temp, bytes);
+            Path file = this.directory.resolve(key + ".class");
+            try
+            {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+            this.track(key, bytes);
+        }
+        catch (IOException ex)
+        {
+            System.err.println("[Incognito] Could not cache class " + key + ": " + ex);
+        }
+        finally
+        {
+            if (temp != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(temp);
+                }
+                catch (IOException ignored)
+                {
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.agent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import net.jaqobb.incognito.json.JSONWriter;
+
+public final class ClassLoadTrace
+{
+    private final long        origin  = System.nanoTime();
+    private final List<Entry> entries = new ArrayList<>(4096);
+
+    private static final class Entry
+    {
+        private final String  className;
+        private final long    timestamp;
+        private final long    transformNanos;
+        private final boolean modified;
+        private final boolean redefined;
+
+        Entry(String className, long timestamp, long transformNanos, boolean modified, boolean redefined)
+        {
+            this.className = className;
+            this.timestamp = timestamp;
+            this.transformNanos = transformNanos;
+            this.modified = modified;
+            this.redefined = redefined;
+        }
+    }
+
+    public ClassLoadTrace()
+    {
+        // Loads Entry now, as loading it from inside transform() would recurse into the transformer.
+        try
+        {
+            Class.forName(Entry.class.getName());
+        }
+        catch (ClassNotFoundException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    void record(String className, long timestamp, long transformNanos, boolean modified, boolean redefined)
+    {
+        Entry entry = new Entry(className, timestamp - this.origin, transformNanos, modified, redefined);
+        synchronized (this.entries)
+        {
+            this.entries.add(entry);
+        }
+    }
+
+    public int size()
+    {
+        synchronized (this.entries)
+        {
+            return this.entries.size();
+        }
+    }
+
+    public void write(File file) throws IOException
+    {
+        List<Entry> entries;
+        synchronized (this.entries)
+        {
+            entries = new ArrayList<>(this.entries);
+        }
+        entries.sort(Comparator.comparingLong((Entry entry) -> entry.transformNanos).reversed().thenComparingLong(entry -> entry.timestamp));
+        long totalNanos = 0L;
+        int modified = 0;
+        for (Entry entry : entries)
+        {
+            totalNanos += entry.transformNanos;
+            if (entry.modified)
+            {
+                modified += 1;
+            }
+        }
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+        {
+            JSONWriter json = new JSONWriter(writer);
+            json.object();
+            json.key("classes").value(entries.size());
+            json.key("modified").value(modified);
+            json.key("transformNanos").value(totalNanos);
+            json.key("columns").array().value("class").value("loadedAtMicros").value("transformNanos").value("modified").value("redefined").endArray();
+            json.key("entries").array();
+            for (Entry entry : entries)
+            {
+                json.array();
+                json.value(entry.className);
+                json.value(entry.timestamp / 1000L);
+                json.value(entry.transformNanos);
+                json.value(entry.modified);
+                json.value(entry.redefined);
+                json.endArray();
+            }
+            json.endArray();
+            json.endObject();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.agent;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+
+import net.jaqobb.incognito.agent.probe.MethodProbes;
+import net.jaqobb.incognito.agent.probe.ProbeTransformer;
+import net.jaqobb.incognito.json.JSON;
+import net.jaqobb.incognito.json.JSONObject;
+import net.jaqobb.incognito.metrics.JFREvents;
+import net.jaqobb.incognito.metrics.MetricsFileExporter;
+import net.jaqobb.incognito.metrics.MetricsRegistry;
+import net.jaqobb.incognito.utils.IncognitoUtils;
+
+public final class IncognitoAgent
+{
+    private static volatile IncognitoAgent instance;
+
+    private final    AgentConfig                       config;
+    private final    Instrumentation                   inst;
+    private final    TransformerRegistry               transformers = new TransformerRegistry();
+    private final    CompletableFuture<IncognitoAgent> ready        = new CompletableFuture<>();
+    private volatile RetransformQueue                  retransforms;
+    private volatile ProbeTransformer                  probes;
+    private volatile JSONObject                        profiles;
+
+    private IncognitoAgent(AgentConfig config, Instrumentation inst)
+    {
+        this.config = config;
+        this.inst = inst;
+    }
+
+    public static synchronized IncognitoAgent start(String args, Instrumentation inst)
+    {
+        if (instance != null)
+        {
+            throw new IllegalStateException("Incognito agent is already running.");
+        }
+        IncognitoAgent agent = new IncognitoAgent(AgentConfig.parse(args), inst);
+        instance = agent;
+        MetricsRegistry.global().installJSONListener();
+        if (agent.config.getBoolean("classTrace", false))
+        {
+            agent.installTrace();
+        }
+        String probes = agent.config.getString("probes", null);
+        if (probes != null)
+        {
+            agent.installProbes(probes);
+        }
+        inst.addTransformer(agent.transformers, inst.isRetransformClassesSupported());
+        Thread thread = new Thread(agent::initialize, "Incognito Agent Initializer");
+        thread.setDaemon(true);
+        thread.start();
+        return agent;
+    }
+
+    public static IncognitoAgent getInstance()
+    {
+        return instance;
+    }
+
+    private void initialize()
+    {
+        long start = System.nanoTime();
+        try
+        {
+            AgentConfig config = this.config;
+            JSON.setListener(JFREvents.jsonListener(JSON.getListener(), (int) config.getLong("jfrJsonThreshold", 64L << 10)));
+            JFREvents.installRecorderListener();
+            if (config.getBoolean("classCache", true))
+            {
+                String build = ClassCache.buildId(IncognitoAgent.class);
+                if (build != null)
+                {
+                    this.transformers.setCache(new ClassCache(new File(config.getWorkingDirectory(), "incognito" + File.separator + "class-cache"), build, config.getLong("classCacheMaxBytes", 64L << 20)));
+                }
+            }
+            if (this.inst.isRetransformClassesSupported())
+            {
+                this.retransforms = new RetransformQueue(this.inst, (int) config.getLong("retransformBatchSize", 64L), config.getLong("retransformDelay", 50L));
+                this.retransforms.addPreparer(this.transformers::prepare);
+            }
+            long metricsInterval = config.getLong("metricsInterval", 0L);
+            if (metricsInterval > 0L)
+            {
+                File metrics = new File(config.getWorkingDirectory(), "incognito" + File.separator + "metrics.jsonl");
+                MetricsFileExporter exporter = new MetricsFileExporter(MetricsRegistry.global(), metrics, metricsInterval, config.getLong("metricsMaxBytes", 10L << 20), (int) config.getLong("metricsMaxFiles", 3L));
+                exporter.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(exporter::close, "Incognito Metrics Shutdown"));
+            }
+            if (this.probes != null)
+            {
+                this.reportProbes(this.probes);
+            }
+            File profiles = new File(config.getWorkingDirectory(), "launcher_profiles.json");
+            if (profiles.isFile())
+            {
+                long profilesStart = System.nanoTime();
+                this.profiles = new JSONObject(IncognitoUtils.readFile(profiles));
+                long profilesElapsed = System.nanoTime() - profilesStart;
+                MetricsRegistry.global().histogram("profiles.load.nanos").record(profilesElapsed);
+                JFREvents.emit(JFREvents.Type.PROFILE_READ, profilesElapsed, profiles.getPath(), profiles.length());
+            }
+            long elapsed = System.nanoTime() - start;
+            MetricsRegistry.global().histogram("agent.initialize.nanos").record(elapsed);
+            JFREvents.emitDeferred(JFREvents.Type.AGENT_PHASE, elapsed, "initialize");
+            this.ready.complete(this);
+        }
+        catch (Throwable throwable)
+        {
+            System.err.println("[Incognito] Agent initialization failed: " + IncognitoUtils.getStackTrace(throwable));
+            this.ready.completeExceptionally(throwable);
+        }
+    }
+
+    private void installTrace()
+    {
+        ClassLoadTrace trace = new ClassLoadTrace();
+        this.transformers.setTrace(trace);
+        File report = new File(this.config.getWorkingDirectory(), "incognito" + File.separator + "class-trace.json");
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+        {
+            this.transformers.setTrace(null);
+            try
+            {
+                trace.write(report);
+            }
+            catch (IOException ex)
+            {
+                System.err.println("[Incognito] Could not write the class trace: " + ex);
+            }
+        }, "Incognito Class Trace Report"));
+    }
+
+    // Probes are registered before the transformer goes live so classes loaded during startup are
+    // instrumented too; only classes that were already loaded by then are left to the background
+    // retransformation in reportProbes.
+    private void installProbes(String spec)
+    {
+        ProbeTransformer probes = new ProbeTransformer(spec);
+        MethodProbes.setEnabled(this.config.getBoolean("probesEnabled", true));
+        probes.install(this.transformers);
+        this.probes = probes;
+    }
+
+    private void reportProbes(ProbeTransformer probes)
+    {
+        if (this.retransforms != null)
+        {
+            this.retransforms.requestMatching(probes::isTargeted);
+        }
+        File report = new File(this.config.getWorkingDirectory(), "incognito" + File.separator + "probes.json");
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+        {
+            try
+            {
+                Files.createDirectories(report.getParentFile().toPath());
+                Files.write(report.toPath(), MethodProbes.snapshot().toString(2).getBytes(StandardCharsets.UTF_8));
+            }
+            catch (IOException ex)
+            {
+                System.err.println("[Incognito] Could not write the probe report: " + ex);
+            }
+        }, "Incognito Probe Report"));
+    }
+
+    public CompletableFuture<IncognitoAgent> whenReady()
+    {
+        return this.ready;
+    }
+
+    public boolean isReady()
+    {
+        return this.ready.isDone() && ! this.ready.isCompletedExceptionally();
+    }
+
+    public Instrumentation getInstrumentation()
+    {
+        return this.inst;
+    }
+
+    public TransformerRegistry getTransformers()
+    {
+        return this.transformers;
+    }
+
+    public RetransformQueue getRetransforms()
+    {
+        return this.retransforms;
+    }
+
+    public AgentConfig getConfig()
+    {
+        return this.config;
+    }
+
+    public JSONObject getProfiles()
+    {
+        return this.profiles;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,225 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.agent;
+
+import java.lang.instrument.Instrumentation;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import net.jaqobb.incognito.utils.IncognitoUtils;
+
+public final class RetransformQueue implements AutoCloseable
+{
+    @FunctionalInterface
+    public interface Preparer
+    {
+        void prepare(Class<?> clazz) throws Exception;
+    }
+
+    private final Instrumentation          inst;
+    private final int                      maxBatchSize;
+    private final long                     flushDelayMillis;
+    private final List<Preparer>           preparers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService          workers;
+    private       Set<Class<?>>            pending   = new LinkedHashSet<>();
+    private       CompletableFuture<Void>  future    = new CompletableFuture<>();
+    private       boolean                  flushScheduled;
+
+    public RetransformQueue(Instrumentation inst, int maxBatchSize, long flushDelayMillis)
+    {
+        if (maxBatchSize < 1)
+        {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        this.inst = inst;
+        this.maxBatchSize = maxBatchSize;
+        this.flushDelayMillis = flushDelayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(IncognitoUtils.newDaemonThreadFactory("Incognito Retransformer", Thread.NORM_PRIORITY));
+        this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), IncognitoUtils.newDaemonThreadFactory("Incognito Retransform Worker", Thread.NORM_PRIORITY));
+    }
+
+    public void addPreparer(Preparer preparer)
+    {
+        this.preparers.add(preparer);
+    }
+
+    public boolean removePreparer(Preparer preparer)
+    {
+        return this.preparers.remove(preparer);
+    }
+
+    public CompletableFuture<Void> request(Class<?>... classes)
+    {
+        CompletableFuture<Void> future;
+        boolean flush = false;
+        synchronized (this)
+        {
+            for (Class<?> clazz : classes)
+            {
+                if (this.inst.isModifiableClass(clazz))
+                {
+                    this.pending.add(clazz);
+                }
+            }
+            if (this.pending.isEmpty())
+            {
+                return CompletableFuture.completedFuture(null);
+            }
+            future = this.future;
+            if (this.pending.size() >= this.maxBatchSize)
+            {
+                flush = true;
+            }
+            else if (! this.flushScheduled)
+            {
+                this.flushScheduled = true;
+                this.scheduler.schedule(this::flush, this.flushDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flush)
+        {
+            this.flush();
+        }
+        return future;
+    }
+
+    public CompletableFuture<Void> requestMatching(Predicate<String> classNameFilter)
+    {
+        return this.request(Arrays.stream(this.inst.getAllLoadedClasses()).filter(clazz -> classNameFilter.test(clazz.getName())).toArray(Class<?>[]::new));
+    }
+
+    public CompletableFuture<Void> flush()
+    {
+        Set<Class<?>> classes;
+        CompletableFuture<Void> future;
+        synchronized (this)
+        {
+            if (this.pending.isEmpty())
+            {
+                return CompletableFuture.completedFuture(null);
+            }
+            classes = this.pending;
+            future = this.future;
+            this.pending = new LinkedHashSet<>();
+            this.future = new CompletableFuture<>();
+            this.flushScheduled = false;
+        }
+        this.scheduler.execute(() -> this.retransform(classes, future));
+        return future;
+    }
+
+    // A failing batch does not stop the ones after it; the shared future fails with the first
+    // error once every batch has been attempted, and later errors are attached as suppressed.
+    private void retransform(Set<Class<?>> classes, CompletableFuture<Void> future)
+    {
+        Throwable failure = null;
+        Class<?>[] array = classes.toArray(new Class<?>[0]);
+        try
+        {
+            if (! this.preparers.isEmpty())
+            {
+                CompletableFuture<?>[] tasks = new CompletableFuture<?>[array.length];
+                for (int i = 0; i < array.length; i += 1)
+                {
+                    Class<?> clazz = array[i];
+                    tasks[i] = CompletableFuture.runAsync(() -> this.prepare(clazz), this.workers);
+                }
+                CompletableFuture.allOf(tasks).join();
+            }
+        }
+        catch (Throwable throwable)
+        {
+            failure = throwable;
+        }
+        for (int from = 0; from < array.length; from += this.maxBatchSize)
+        {
+            try
+            {
+                this.inst.retransformClasses(Arrays.copyOfRange(array, from, Math.min(array.length, from + this.maxBatchSize)));
+            }
+            catch (Throwable throwable)
+            {
+                if (failure == null)
+                {
+                    failure = throwable;
+                }
+                else
+                {
+                    failure.addSuppressed(throwable);
+                }
+            }
+        }
+        if (failure == null)
+        {
+            future.complete(null);
+        }
+        else
+        {
+            future.completeExceptionally(failure);
+        }
+    }
+
+    private void prepare(Class<?> clazz)
+    {
+        for (Preparer preparer : this.preparers)
+        {
+            try
+            {
+                preparer.prepare(clazz);
+            }
+            catch (Exception ex)
+            {
+                System.err.println("[Incognito] Could not prepare " + clazz.getName() + " for retransformation: " + IncognitoUtils.getStackTrace(ex));
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.flush();
+        this.scheduler.shutdown();
+        try
+        {
+            this.scheduler.awaitTermination(1L, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        this.workers.shutdown();
+    }
+}
\ No newline at end of file
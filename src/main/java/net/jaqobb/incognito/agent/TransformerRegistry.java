@@ -0,0 +1,474 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.jaqobb.incognito.metrics.Counter;
+import net.jaqobb.incognito.metrics.Histogram;
+import net.jaqobb.incognito.metrics.JFREvents;
+import net.jaqobb.incognito.metrics.MetricsRegistry;
+import net.jaqobb.incognito.utils.IncognitoUtils;
+
+public final class TransformerRegistry implements ClassFileTransformer
+{
+    private final    Histogram               transformTime = MetricsRegistry.global().histogram("agent.transform.nanos");
+    private final    Counter                 cacheHits     = MetricsRegistry.global().counter("agent.transform.cacheHits");
+    private final    Counter                 preparedHits  = MetricsRegistry.global().counter("agent.transform.preparedHits");
+    private final    Map<Class<?>, Prepared> prepared      = Collections.synchronizedMap(new WeakHashMap<>(16));
+    private volatile Index                   index         = Index.EMPTY;
+    private volatile ClassCache              cache;
+    private volatile ClassLoadTrace          trace;
+    private          long                    order;
+
+    public TransformerRegistry()
+    {
+        MetricsRegistry.global().gauge("agent.transformers", () -> this.index.registrations.size());
+    }
+
+    public static final class Registration
+    {
+        private final String           target;
+        private final boolean          prefix;
+        private final String           version;
+        private final ClassTransformer transformer;
+        private final long             order;
+
+        private Registration(String target, boolean prefix, String version, ClassTransformer transformer, long order)
+        {
+            this.target = target;
+            this.prefix = prefix;
+            this.version = version;
+            this.transformer = transformer;
+            this.order = order;
+        }
+
+        public String getTarget()
+        {
+            return this.target;
+        }
+
+        public boolean isPrefix()
+        {
+            return this.prefix;
+        }
+
+        public String getVersion()
+        {
+            return this.version;
+        }
+
+        public ClassTransformer getTransformer()
+        {
+            return this.transformer;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.prefix ? (this.target + "*") : this.target;
+        }
+    }
+
+    private static final class Prepared
+    {
+        private final Index  index;
+        private final byte[] source;
+        private final byte[] bytes;
+
+        Prepared(Index index, byte[] source, byte[] bytes)
+        {
+            this.index = index;
+            this.source = source;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Node
+    {
+        private char[]         keys     = new char[0];
+        private Node[]         children = new Node[0];
+        private Registration[] registrations;
+
+        Node child(char key)
+        {
+            for (int i = 0; i < this.keys.length; i += 1)
+            {
+                if (this.keys[i] == key)
+                {
+                    return this.children[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrAddChild(char key)
+        {
+            Node child = this.child(key);
+            if (child == null)
+            {
+                child = new Node();
+                this.keys = Arrays.copyOf(this.keys, this.keys.length + 1);
+                this.children = Arrays.copyOf(this.children, this.children.length + 1);
+                this.keys[this.keys.length - 1] = key;
+                this.children[this.children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+    private static final class Index
+    {
+        private static final Index EMPTY = new Index(Collections.emptyList());
+
+        private final List<Registration>          registrations;
+        private final Map<String, Registration[]> exact;
+        private final Node                        root;
+        private final boolean                     hasPrefixes;
+
+        Index(List<Registration> registrations)
+        {
+            this.registrations = registrations;
+            this.exact = new HashMap<>(Math.max(16, registrations.size() * 2));
+            this.root = new Node();
+            boolean hasPrefixes = false;
+            for (Registration registration : registrations)
+            {
+                if (registration.prefix)
+                {
+                    Node node = this.root;
+                    for (int i = 0; i < registration.target.length(); i += 1)
+                    {
+                        node = node.getOrAddChild(registration.target.charAt(i));
+                    }
+                    node.registrations = append(node.registrations, registration);
+                    hasPrefixes = true;
+                }
+                else
+                {
+                    this.exact.put(registration.target, append(this.exact.get(registration.target), registration));
+                }
+            }
+            this.hasPrefixes = hasPrefixes;
+        }
+
+        private static Registration[] append(Registration[] array, Registration registration)
+        {
+            if (array == null)
+            {
+                return new Registration[] {registration};
+            }
+            Registration[] copy = Arrays.copyOf(array, array.length + 1);
+            copy[array.length] = registration;
+            return copy;
+        }
+
+        boolean isEmpty()
+        {
+            return this.registrations.isEmpty();
+        }
+
+        List<Registration> match(String className)
+        {
+            List<Registration> matches = null;
+            if (this.hasPrefixes)
+            {
+                Node node = this.root;
+                for (int i = 0; node != null; i += 1)
+                {
+                    if (node.registrations != null)
+                    {
+                        if (matches == null)
+                        {
+                            matches = new ArrayList<>(4);
+                        }
+                        Collections.addAll(matches, node.registrations);
+                    }
+                    if (i == className.length())
+                    {
+                        break;
+                    }
+                    node = node.child(className.charAt(i));
+                }
+            }
+            Registration[] exact = this.exact.isEmpty() ? null : this.exact.get(className);
+            if (exact != null)
+            {
+                if (matches == null)
+                {
+                    return Arrays.asList(exact);
+                }
+                Collections.addAll(matches, exact);
+            }
+            if ((matches != null) && (matches.size() > 1))
+            {
+                matches.sort(Comparator.comparingLong(registration -> registration.order));
+            }
+            return matches;
+        }
+    }
+
+    public Registration register(String className, ClassTransformer transformer)
+    {
+        return this.add(className, false, null, transformer);
+    }
+
+    public Registration register(String className, String version, ClassTransformer transformer)
+    {
+        return this.add(className, false, version, transformer);
+    }
+
+    public Registration registerPrefix(String prefix, ClassTransformer transformer)
+    {
+        return this.add(prefix, true, null, transformer);
+    }
+
+    public Registration registerPrefix(String prefix, String version, ClassTransformer transformer)
+    {
+        return this.add(prefix, true, version, transformer);
+    }
+
+    private synchronized Registration add(String target, boolean prefix, String version, ClassTransformer transformer)
+    {
+        if ((target == null) || (transformer == null))
+        {
+            throw new NullPointerException("Null target or transformer.");
+        }
+        Registration registration = new Registration(target.replace('.', '/'), prefix, version, transformer, this.order);
+        this.order += 1;
+        List<Registration> registrations = new ArrayList<>(this.index.registrations);
+        registrations.add(registration);
+        this.index = new Index(registrations);
+        return registration;
+    }
+
+    public synchronized boolean unregister(Registration registration)
+    {
+        List<Registration> registrations = new ArrayList<>(this.index.registrations);
+        if (! registrations.remove(registration))
+        {
+            return false;
+        }
+        this.index = registrations.isEmpty() ? Index.EMPTY : new Index(registrations);
+        return true;
+    }
+
+    public ClassCache getCache()
+    {
+        return this.cache;
+    }
+
+    public void setCache(ClassCache cache)
+    {
+        this.cache = cache;
+    }
+
+    public ClassLoadTrace getTrace()
+    {
+        return this.trace;
+    }
+
+    public void setTrace(ClassLoadTrace trace)
+    {
+        this.trace = trace;
+    }
+
+    // Runs the transformer chain for an already loaded class ahead of retransformation, on the
+    // bytes its loader serves for it, so the ASM work happens outside the retransformation pause.
+    // transform() hands the result back when the JVM passes the class in, provided the
+    // registrations have not changed since and the bytes it passes are identical to the resource.
+    // Reconstituted class files often differ from the resource for larger classes, so those miss
+    // and are transformed in the pause as before.
+    public void prepare(Class<?> clazz) throws IOException
+    {
+        Index index = this.index;
+        String className = clazz.getName().replace('.', '/');
+        ClassLoader loader = clazz.getClassLoader();
+        List<Registration> matches = index.isEmpty() ? null : accepted(index.match(className), loader, className);
+        if (matches == null)
+        {
+            return;
+        }
+        InputStream in = (loader == null) ? ClassLoader.getSystemResourceAsStream(className + ".class") : loader.getResourceAsStream(className + ".class");
+        if (in == null)
+        {
+            return;
+        }
+        byte[] classfileBuffer = IncognitoUtils.readBytes(in);
+        byte[] result = this.transform(matches, loader, className, clazz, clazz.getProtectionDomain(), classfileBuffer);
+        this.prepared.put(clazz, new Prepared(index, classfileBuffer, result));
+    }
+
+    public boolean isTargeted(String className)
+    {
+        Index index = this.index;
+        return ! index.isEmpty() && (index.match(className.replace('.', '/')) != null);
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer)
+    {
+        Index index = this.index;
+        ClassLoadTrace trace = this.trace;
+        if ((className == null) || (index.isEmpty() && (trace == null)))
+        {
+            return null;
+        }
+        List<Registration> matches = accepted(index.match(className), loader, className);
+        if (matches == null)
+        {
+            if (trace != null)
+            {
+                trace.record(className, System.nanoTime(), 0L, false, classBeingRedefined != null);
+            }
+            return null;
+        }
+        long start = System.nanoTime();
+        byte[] result = null;
+        try
+        {
+            Prepared prepared = (classBeingRedefined == null) ? null : this.prepared.remove(classBeingRedefined);
+            if ((prepared != null) && (prepared.index == index) && Arrays.equals(prepared.source, classfileBuffer))
+            {
+                this.preparedHits.increment();
+                result = prepared.bytes;
+                return result;
+            }
+            result = this.transform(matches, loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+            return result;
+        }
+        finally
+        {
+            long elapsed = System.nanoTime() - start;
+            this.transformTime.record(elapsed);
+            if (JFREvents.isEnabled(JFREvents.Type.CLASS_TRANSFORM))
+            {
+                JFREvents.emit(JFREvents.Type.CLASS_TRANSFORM, elapsed, className, result != null);
+            }
+            if (trace != null)
+            {
+                trace.record(className, start, elapsed, result != null, classBeingRedefined != null);
+            }
+        }
+    }
+
+    private byte[] transform(List<Registration> matches, ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer)
+    {
+        ClassCache cache = this.cache;
+        String key = null;
+        if (cache != null)
+        {
+            String version = chainVersion(matches);
+            if (version != null)
+            {
+                key = cache.key(className, version, classfileBuffer);
+                byte[] cached = cache.load(key);
+                if (cached != null)
+                {
+                    this.cacheHits.increment();
+                    return (cached.length == 0) ? null : cached;
+                }
+            }
+        }
+        byte[] bytes = classfileBuffer;
+        boolean failed = false;
+        for (Registration registration : matches)
+        {
+            try
+            {
+                byte[] result = registration.transformer.transform(loader, className, classBeingRedefined, protectionDomain, bytes);
+                if (result != null)
+                {
+                    bytes = result;
+                }
+            }
+            catch (Exception ex)
+            {
+                System.err.println("[Incognito] Transformer for " + registration + " failed on " + className + ": " + IncognitoUtils.getStackTrace(ex));
+                failed = true;
+            }
+        }
+        if ((key != null) && ! failed)
+        {
+            cache.store(key, (bytes == classfileBuffer) ? new byte[0] : bytes);
+        }
+        return (bytes == classfileBuffer) ? null : bytes;
+    }
+
+    private static List<Registration> accepted(List<Registration> matches, ClassLoader loader, String className)
+    {
+        if (matches == null)
+        {
+            return null;
+        }
+        List<Registration> accepted = matches;
+        for (int i = 0; i < matches.size(); i += 1)
+        {
+            Registration registration = matches.get(i);
+            if (! registration.transformer.accepts(loader, className))
+            {
+                if (accepted == matches)
+                {
+                    accepted = new ArrayList<>(matches.subList(0, i));
+                }
+            }
+            else if (accepted != matches)
+            {
+                accepted.add(registration);
+            }
+        }
+        return accepted.isEmpty() ? null : accepted;
+    }
+
+    private static String chainVersion(List<Registration> matches)
+    {
+        if (matches.size() == 1)
+        {
+            return matches.get(0).version;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Registration registration : matches)
+        {
+            if (registration.version == null)
+            {
+                return null;
+            }
+            builder.append(registration).append('@').append(registration.version).append(';');
+        }
+        return builder.toString();
+    }
+}
\ No newline at end of file
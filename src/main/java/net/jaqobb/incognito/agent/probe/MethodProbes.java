@@ -0,0 +1,223 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.agent.probe;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.jaqobb.incognito.json.JSONArray;
+import net.jaqobb.incognito.json.JSONObject;
+
+public final class MethodProbes
+{
+    private static final int BUCKETS = 64;
+    private static final int COUNT   = 0;
+    private static final int TOTAL   = 1;
+    private static final int MAX     = 2;
+    private static final int HEADER  = 3;
+    private static final int STRIDE  = HEADER + BUCKETS;
+
+    private static final CopyOnWriteArrayList<String>       NAMES     = new CopyOnWriteArrayList<>();
+    private static final ConcurrentHashMap<String, Integer> IDS       = new ConcurrentHashMap<>(16);
+    private static final Queue<Recorder>                    RECORDERS = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Recorder>              RECORDER  = ThreadLocal.withInitial(() ->
+    {
+        retire();
+        Recorder recorder = new Recorder();
+        RECORDERS.add(recorder);
+        return recorder;
+    });
+
+    private static volatile boolean enabled;
+
+    // Totals of recorders whose threads have died, guarded by the class lock.
+    private static long[] retired = new long[0];
+
+    private static final class Recorder
+    {
+        private final    WeakReference<Thread> thread = new WeakReference<>(Thread.currentThread());
+        private volatile AtomicLongArray       data   = new AtomicLongArray(0);
+
+        boolean isLive()
+        {
+            Thread thread = this.thread.get();
+            return (thread != null) && thread.isAlive();
+        }
+
+        void record(int probe, long nanos)
+        {
+            AtomicLongArray data = this.data;
+            int base = probe * STRIDE;
+            if ((base + STRIDE) > data.length())
+            {
+                AtomicLongArray grown = new AtomicLongArray(Math.max(base + STRIDE, data.length() * 2));
+                for (int i = 0; i < data.length(); i += 1)
+                {
+                    grown.lazySet(i, data.get(i));
+                }
+                this.data = grown;
+                data = grown;
+            }
+            if (nanos < 0L)
+            {
+                nanos = 0L;
+            }
+            int bucket = (nanos == 0L) ? 0 : (63 - Long.numberOfLeadingZeros(nanos));
+            data.lazySet(base + COUNT, data.get(base + COUNT) + 1L);
+            data.lazySet(base + TOTAL, data.get(base + TOTAL) + nanos);
+            if (nanos > data.get(base + MAX))
+            {
+                data.lazySet(base + MAX, nanos);
+            }
+            data.lazySet(base + HEADER + bucket, data.get(base + HEADER + bucket) + 1L);
+        }
+    }
+
+    private MethodProbes()
+    {
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled)
+    {
+        MethodProbes.enabled = enabled;
+    }
+
+    public static int register(String name)
+    {
+        Integer id = IDS.get(name);
+        if (id != null)
+        {
+            return id;
+        }
+        synchronized (NAMES)
+        {
+            return IDS.computeIfAbsent(name, key ->
+            {
+                NAMES.add(key);
+                return NAMES.size() - 1;
+            });
+        }
+    }
+
+    public static long enter()
+    {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void exit(int probe, long start)
+    {
+        if (start != 0L)
+        {
+            RECORDER.get().record(probe, System.nanoTime() - start);
+        }
+    }
+
+    // Folds the recorders of dead threads into the retired totals and drops them, so pools that
+    // keep replacing threads do not keep one recorder per thread they ever ran. Runs whenever a
+    // thread first records and on every snapshot.
+    private static synchronized void retire()
+    {
+        for (Iterator<Recorder> iterator = RECORDERS.iterator(); iterator.hasNext(); )
+        {
+            Recorder recorder = iterator.next();
+            if (! recorder.isLive())
+            {
+                AtomicLongArray data = recorder.data;
+                if (retired.length < data.length())
+                {
+                    retired = Arrays.copyOf(retired, data.length());
+                }
+                for (int i = 0; i < data.length(); i += 1)
+                {
+                    merge(retired, i, data.get(i));
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void merge(long[] totals, int index, long value)
+    {
+        if ((index % STRIDE) == MAX)
+        {
+            totals[index] = Math.max(totals[index], value);
+        }
+        else
+        {
+            totals[index] += value;
+        }
+    }
+
+    public static synchronized JSONObject snapshot()
+    {
+        retire();
+        int probes = NAMES.size();
+        long[] totals = Arrays.copyOf(retired, probes * STRIDE);
+        for (Recorder recorder : RECORDERS)
+        {
+            AtomicLongArray data = recorder.data;
+            int length = Math.min(data.length(), totals.length);
+            for (int i = 0; i < length; i += 1)
+            {
+                merge(totals, i, data.get(i));
+            }
+        }
+        JSONObject snapshot = new JSONObject();
+        for (int probe = 0; probe < probes; probe += 1)
+        {
+            int base = probe * STRIDE;
+            long count = totals[base + COUNT];
+            JSONObject stats = new JSONObject();
+            stats.put("count", count);
+            stats.put("totalNanos", totals[base + TOTAL]);
+            stats.put("meanNanos", (count == 0L) ? 0L : (totals[base + TOTAL] / count));
+            stats.put("maxNanos", totals[base + MAX]);
+            JSONArray histogram = new JSONArray();
+            for (int bucket = 0; bucket < BUCKETS; bucket += 1)
+            {
+                long bucketCount = totals[base + HEADER + bucket];
+                if (bucketCount != 0L)
+                {
+                    histogram.put(new JSONArray().put((bucket == 0) ? 0L : (1L << bucket)).put(bucketCount));
+                }
+            }
+            stats.put("histogram", histogram);
+            snapshot.put(NAMES.get(probe), stats);
+        }
+        return snapshot;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,373 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.agent.probe;
+
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.Method;
+
+import net.jaqobb.incognito.agent.ClassTransformer;
+import net.jaqobb.incognito.agent.TransformerRegistry;
+
+public final class ProbeTransformer implements ClassTransformer
+{
+    private static final String PROBES = Type.getInternalName(MethodProbes.class);
+
+    private final String                    spec;
+    private final Map<String, List<Target>> targets;
+    private final Map<ClassLoader, Boolean> visibility = Collections.synchronizedMap(new WeakHashMap<>(8));
+
+    private static final class Target
+    {
+        private final String name;
+        private final String desc;
+        private final int    probe;
+
+        Target(String name, String desc, int probe)
+        {
+            this.name = name;
+            this.desc = desc;
+            this.probe = probe;
+        }
+
+        boolean matches(String name, String desc)
+        {
+            return this.name.equals(name) && ((this.desc == null) || this.desc.equals(desc));
+        }
+    }
+
+    public ProbeTransformer(String spec)
+    {
+        this.spec = spec;
+        this.targets = new LinkedHashMap<>(16);
+        Set<String> modulePackages = modulePackages();
+        for (String entry : entries(spec))
+        {
+            entry = entry.trim();
+            if (entry.isEmpty())
+            {
+                continue;
+            }
+            int separator = entry.indexOf('#');
+            int descStart = entry.indexOf('(');
+            boolean named = (separator > 0) && (separator < (entry.length() - 1));
+            if (! named || ((descStart >= 0) && ((descStart <= (separator + 1)) || (entry.indexOf(')', descStart) < 0))))
+            {
+                System.err.println("[Incognito] Skipping probe " + entry + ": it is not of the form owner#method or owner#method(descriptor).");
+                continue;
+            }
+            String owner = entry.substring(0, separator).replace('.', '/');
+            String method = entry.substring(separator + 1);
+            int packageEnd = owner.lastIndexOf('/');
+            if ((packageEnd > 0) && modulePackages.contains(owner.substring(0, packageEnd)))
+            {
+                System.err.println("[Incognito] Skipping probe " + entry + ": its class is in a named module, which cannot read the probe runtime.");
+                continue;
+            }
+            descStart = method.indexOf('(');
+            String name = (descStart < 0) ? method : method.substring(0, descStart);
+            String desc = (descStart < 0) ? null : method.substring(descStart);
+            int probe = MethodProbes.register(owner.replace('/', '.') + "#" + method);
+            this.targets.computeIfAbsent(owner, key -> new ArrayList<>(4)).add(new Target(name, desc, probe));
+        }
+    }
+
+    // Splits the spec on the semicolons between entries. A semicolon inside parentheses ends a
+    // reference type in a method descriptor, such as add(Ljava/lang/Object;)Z, unless the
+    // parentheses are never closed before the next entry starts.
+    private static List<String> entries(String spec)
+    {
+        List<String> entries = new ArrayList<>(8);
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < spec.length(); i += 1)
+        {
+            char ch = spec.charAt(i);
+            if (ch == '(')
+            {
+                depth += 1;
+            }
+            else if ((ch == ')') && (depth > 0))
+            {
+                depth -= 1;
+            }
+            else if ((ch == ';') && ((depth == 0) || ! closes(spec, i)))
+            {
+                entries.add(spec.substring(start, i));
+                start = i + 1;
+                depth = 0;
+            }
+        }
+        entries.add(spec.substring(start));
+        return entries;
+    }
+
+    private static boolean closes(String spec, int index)
+    {
+        int close = spec.indexOf(')', index);
+        int next = spec.indexOf('#', index);
+        return (close >= 0) && ((next < 0) || (close < next));
+    }
+
+    public void install(TransformerRegistry registry)
+    {
+        String version = "probes:" + this.spec;
+        for (String owner : this.targets.keySet())
+        {
+            registry.register(owner, version, this);
+        }
+    }
+
+    public boolean isTargeted(String className)
+    {
+        return this.targets.containsKey(className.replace('.', '/'));
+    }
+
+    // Packages of the named modules in the boot layer. Code there only reads named modules, so a
+    // call into MethodProbes, which lives in the unnamed module, would fail with IllegalAccessError.
+    // Empty on Java 8, which has no modules.
+    private static Set<String> modulePackages()
+    {
+        Set<String> packages = new HashSet<>(256);
+        try
+        {
+            Class<?> layerClass = Class.forName("java.lang.ModuleLayer");
+            java.lang.reflect.Method getPackages = Class.forName("java.lang.Module").getMethod("getPackages");
+            Object layer = layerClass.getMethod("boot").invoke(null);
+            for (Object module : (Set<?>) layerClass.getMethod("modules").invoke(layer))
+            {
+                for (Object name : (Set<?>) getPackages.invoke(module))
+                {
+                    packages.add(((String) name).replace('.', '/'));
+                }
+            }
+        }
+        catch (ClassNotFoundException ignored)
+        {
+        }
+        catch (ReflectiveOperationException | RuntimeException ex)
+        {
+            System.err.println("[Incognito] Could not list named module packages: " + ex);
+        }
+        return packages;
+    }
+
+    // Instrumented code calls MethodProbes directly, so it is only woven into classes whose loader
+    // resolves that name to this very class: the boot loader and loaders that do not delegate to
+    // the agent's loader would fail with NoClassDefFoundError, and a loader with its own copy
+    // would record into probes nobody reports.
+    @Override
+    public boolean accepts(ClassLoader loader, String className)
+    {
+        if (this.canSeeProbes(loader))
+        {
+            return true;
+        }
+        System.err.println("[Incognito] Skipping probes on " + className.replace('/', '.') + ": its class loader cannot see " + MethodProbes.class.getName() + ".");
+        return false;
+    }
+
+    private boolean canSeeProbes(ClassLoader loader)
+    {
+        if (loader == null)
+        {
+            return false;
+        }
+        Boolean visible = this.visibility.get(loader);
+        if (visible == null)
+        {
+            try
+            {
+                visible = Class.forName(MethodProbes.class.getName(), false, loader) == MethodProbes.class;
+            }
+            catch (Throwable throwable)
+            {
+                visible = false;
+            }
+            this.visibility.put(loader, visible);
+        }
+        return visible;
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer)
+    {
+        List<Target> targets = this.targets.getOrDefault(className, Collections.emptyList());
+        if (targets.isEmpty())
+        {
+            return null;
+        }
+        if (! this.accepts(loader, className))
+        {
+            return null;
+        }
+        ClassReader reader = new ClassReader(classfileBuffer);
+        ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+        boolean[] modified = new boolean[1];
+        reader.accept(new ClassVisitor(Opcodes.ASM9, writer)
+        {
+            private boolean frames;
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces)
+            {
+                this.frames = (version & 0xFFFF) >= Opcodes.V1_6;
+                super.visit(version, access, name, signature, superName, interfaces);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions)
+            {
+                MethodVisitor visitor = super.visitMethod(access, name, desc, signature, exceptions);
+                if (((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) || "<clinit>".equals(name))
+                {
+                    return visitor;
+                }
+                for (Target target : targets)
+                {
+                    if (target.matches(name, desc))
+                    {
+                        modified[0] = true;
+                        return new ProbeAdapter(visitor, access, name, desc, className, target.probe, this.frames);
+                    }
+                }
+                return visitor;
+            }
+        }, ClassReader.EXPAND_FRAMES);
+        return modified[0] ? writer.toByteArray() : null;
+    }
+
+    private static final class ProbeAdapter extends AdviceAdapter
+    {
+        private final String  owner;
+        private final int     probe;
+        private final boolean frames;
+        private final Label   start = new Label();
+        private       int     startNanos;
+
+        ProbeAdapter(MethodVisitor visitor, int access, String name, String desc, String owner, int probe, boolean frames)
+        {
+            super(Opcodes.ASM9, visitor, access, name, desc);
+            this.owner = owner;
+            this.probe = probe;
+            this.frames = frames;
+        }
+
+        @Override
+        protected void onMethodEnter()
+        {
+            this.invokeStatic(Type.getObjectType(PROBES), new Method("enter", "()J"));
+            this.startNanos = this.newLocal(Type.LONG_TYPE);
+            this.storeLocal(this.startNanos);
+            this.visitLabel(this.start);
+        }
+
+        @Override
+        protected void onMethodExit(int opcode)
+        {
+            if (opcode != ATHROW)
+            {
+                this.exitProbe();
+            }
+        }
+
+        private void exitProbe()
+        {
+            this.push(this.probe);
+            this.loadLocal(this.startNanos);
+            this.invokeStatic(Type.getObjectType(PROBES), new Method("exit", "(IJ)V"));
+        }
+
+        // Class files older than 1.6 carry no stack map frames, and the verifier infers them, so
+        // the handler only gets an explicit frame when the class file has them.
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals)
+        {
+            Label handler = new Label();
+            this.visitTryCatchBlock(this.start, handler, handler, null);
+            this.visitLabel(handler);
+            if (this.frames)
+            {
+                Object[] locals = this.entryLocals();
+                this.visitFrame(Opcodes.F_NEW, locals.length, locals, 1, new Object[] {"java/lang/Throwable"});
+            }
+            this.exitProbe();
+            this.visitInsn(ATHROW);
+            super.visitMaxs(maxStack, maxLocals);
+        }
+
+        private Object[] entryLocals()
+        {
+            List<Object> locals = new ArrayList<>(8);
+            if ((this.methodAccess & ACC_STATIC) == 0)
+            {
+                locals.add(this.owner);
+            }
+            for (Type type : Type.getArgumentTypes(this.methodDesc))
+            {
+                switch (type.getSort())
+                {
+                    case Type.BOOLEAN:
+                    case Type.CHAR:
+                    case Type.BYTE:
+                    case Type.SHORT:
+                    case Type.INT:
+                        locals.add(Opcodes.INTEGER);
+                        break;
+                    case Type.FLOAT:
+                        locals.add(Opcodes.FLOAT);
+                        break;
+                    case Type.LONG:
+                        locals.add(Opcodes.LONG);
+                        break;
+                    case Type.DOUBLE:
+                        locals.add(Opcodes.DOUBLE);
+                        break;
+                    default:
+                        locals.add(type.getInternalName());
+                        break;
+                }
+            }
+            return locals.toArray();
+        }
+    }
+}
\ No newline at end of file
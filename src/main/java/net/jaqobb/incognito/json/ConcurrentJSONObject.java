@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ConcurrentJSONObject extends JSONObject
+{
+    private final ConcurrentHashMap<String, Object> map;
+
+    public ConcurrentJSONObject()
+    {
+        this(new ConcurrentHashMap<>(16));
+    }
+
+    public ConcurrentJSONObject(JSONObject obj)
+    {
+        this(new ConcurrentHashMap<>(Math.max(16, obj.length())));
+        for (Entry<String, Object> entry : obj.entrySet())
+        {
+            this.map.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public ConcurrentJSONObject(String src) throws JSONException
+    {
+        this(new JSONObject(src));
+    }
+
+    private ConcurrentJSONObject(ConcurrentHashMap<String, Object> map)
+    {
+        super(map);
+        this.map = map;
+    }
+
+    @Override
+    public JSONObject accumulate(String key, Object val) throws JSONException
+    {
+        testValidity(val);
+        this.map.compute(key, (name, obj) ->
+        {
+            if (obj == null)
+            {
+                return (val instanceof JSONArray) ? new JSONArray().put(val) : val;
+            }
+            if (obj instanceof JSONArray)
+            {
+                return JSONAppendList.appended((JSONArray) obj, val);
+            }
+            return new JSONArray().put(obj).put(val);
+        });
+        JSONStructure.touch(this);
+        return this;
+    }
+
+    @Override
+    public JSONObject append(String key, Object val) throws JSONException
+    {
+        testValidity(val);
+        this.map.compute(key, (name, obj) ->
+        {
+            if (obj == null)
+            {
+                return new JSONArray().put(val);
+            }
+            if (obj instanceof JSONArray)
+            {
+                return JSONAppendList.appended((JSONArray) obj, val);
+            }
+            throw new JSONException("JSONObject[" + name + "] is not a JSONArray.");
+        });
+        JSONStructure.touch(this);
+        return this;
+    }
+
+    @Override
+    public boolean has(String key)
+    {
+        return (key != null) && this.map.containsKey(key);
+    }
+
+    @Override
+    public JSONObject increment(String key) throws JSONException
+    {
+        this.map.compute(key, JSONObject::incremented);
+        JSONStructure.touch(this);
+        return this;
+    }
+
+    @Override
+    public JSONObject putOnce(String key, Object val) throws JSONException
+    {
+        if ((key != null) && (val != null))
+        {
+            if (this.putIfAbsent(key, val) != null)
+            {
+                throw new JSONException("Duplicate key \"" + key + "\".");
+            }
+        }
+        return this;
+    }
+
+    public Object putIfAbsent(String key, Object val) throws JSONException
+    {
+        if (key == null)
+        {
+            throw new NullPointerException("Null key.");
+        }
+        if (val == null)
+        {
+            return this.opt(key);
+        }
+        testValidity(val);
+        Object previous = this.map.putIfAbsent(key, val);
+        if (previous == null)
+        {
+            JSONStructure.touch(this);
+        }
+        return previous;
+    }
+
+    @Override
+    public Object remove(String key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+        return super.remove(key);
+    }
+}
\ No newline at end of file
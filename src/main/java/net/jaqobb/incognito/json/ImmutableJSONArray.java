@@ -0,0 +1,443 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public final class ImmutableJSONArray implements Iterable<Object>
+{
+    private static final int BITS  = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK  = WIDTH - 1;
+
+    private static final Object[]           EMPTY_NODE = new Object[WIDTH];
+    private static final ImmutableJSONArray EMPTY      = new ImmutableJSONArray(0, BITS, EMPTY_NODE, new Object[0]);
+
+    private final int      length;
+    private final int      shift;
+    private final Object[] root;
+    private final Object[] tail;
+    private       int      hashCode;
+
+    private ImmutableJSONArray(int length, int shift, Object[] root, Object[] tail)
+    {
+        this.length = length;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    public static ImmutableJSONArray empty()
+    {
+        return EMPTY;
+    }
+
+    public static ImmutableJSONArray from(JSONArray array)
+    {
+        ImmutableJSONArray result = EMPTY;
+        for (int i = 0; i < array.length(); i += 1)
+        {
+            result = result.append(array.opt(i));
+        }
+        return result;
+    }
+
+    private int tailOffset()
+    {
+        return (this.length < WIDTH) ? 0 : (((this.length - 1) >>> BITS) << BITS);
+    }
+
+    private Object[] arrayFor(int index)
+    {
+        if (index >= this.tailOffset())
+        {
+            return this.tail;
+        }
+        Object[] node = this.root;
+        for (int level = this.shift; level > 0; level -= BITS)
+        {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    public int length()
+    {
+        return this.length;
+    }
+
+    public Object opt(int index)
+    {
+        return ((index < 0) || (index >= this.length)) ? null : this.arrayFor(index)[index & MASK];
+    }
+
+    public Object get(int index) throws JSONException
+    {
+        Object obj = this.opt(index);
+        if (obj == null)
+        {
+            throw new JSONException("ImmutableJSONArray[" + index + "] not found.");
+        }
+        return obj;
+    }
+
+    public boolean isNull(int index)
+    {
+        return JSONObject.NULL.equals(this.opt(index));
+    }
+
+    public String optString(int index)
+    {
+        return this.optString(index, "");
+    }
+
+    public String optString(int index, String defaultValue)
+    {
+        Object obj = this.opt(index);
+        return JSONObject.NULL.equals(obj) ? defaultValue : obj.toString();
+    }
+
+    public ImmutableJSONObject optImmutableJSONObject(int index)
+    {
+        Object obj = this.opt(index);
+        return (obj instanceof ImmutableJSONObject) ? (ImmutableJSONObject) obj : null;
+    }
+
+    public ImmutableJSONArray optImmutableJSONArray(int index)
+    {
+        Object obj = this.opt(index);
+        return (obj instanceof ImmutableJSONArray) ? (ImmutableJSONArray) obj : null;
+    }
+
+    public ImmutableJSONArray append(Object val) throws JSONException
+    {
+        val = JSONStructure.freeze((val == null) ? JSONObject.NULL : val);
+        if ((this.length - this.tailOffset()) < WIDTH)
+        {
+            Object[] tail = Arrays.copyOf(this.tail, this.tail.length + 1);
+            tail[this.tail.length] = val;
+            return new ImmutableJSONArray(this.length + 1, this.shift, this.root, tail);
+        }
+        Object[] root;
+        int shift = this.shift;
+        if ((this.length >>> BITS) > (1 << this.shift))
+        {
+            root = new Object[WIDTH];
+            root[0] = this.root;
+            root[1] = newPath(this.shift, this.tail);
+            shift += BITS;
+        }
+        else
+        {
+            root = this.pushTail(this.shift, this.root, this.tail);
+        }
+        return new ImmutableJSONArray(this.length + 1, shift, root, new Object[] {val});
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tail)
+    {
+        int index = ((this.length - 1) >>> level) & MASK;
+        Object[] node = parent.clone();
+        if (level == BITS)
+        {
+            node[index] = tail;
+        }
+        else
+        {
+            Object[] child = (Object[]) parent[index];
+            node[index] = (child != null) ? this.pushTail(level - BITS, child, tail) : newPath(level - BITS, tail);
+        }
+        return node;
+    }
+
+    private static Object[] newPath(int level, Object[] node)
+    {
+        if (level == 0)
+        {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+
+    public ImmutableJSONArray with(int index, Object val) throws JSONException
+    {
+        if (index == this.length)
+        {
+            return this.append(val);
+        }
+        if ((index < 0) || (index > this.length))
+        {
+            throw new JSONException("ImmutableJSONArray[" + index + "] not found.");
+        }
+        val = JSONStructure.freeze((val == null) ? JSONObject.NULL : val);
+        if (index >= this.tailOffset())
+        {
+            Object[] tail = this.tail.clone();
+            tail[index & MASK] = val;
+            return new ImmutableJSONArray(this.length, this.shift, this.root, tail);
+        }
+        return new ImmutableJSONArray(this.length, this.shift, with(this.shift, this.root, index, val), this.tail);
+    }
+
+    private static Object[] with(int level, Object[] node, int index, Object val)
+    {
+        Object[] copy = node.clone();
+        if (level == 0)
+        {
+            copy[index & MASK] = val;
+        }
+        else
+        {
+            int child = (index >>> level) & MASK;
+            copy[child] = with(level - BITS, (Object[]) node[child], index, val);
+        }
+        return copy;
+    }
+
+    public ImmutableJSONArray with(JSONPointer pointer, Object val) throws JSONException
+    {
+        Object result = JSONStructure.withPath(this, pointer.getRefTokens(), 0, val);
+        if (! (result instanceof ImmutableJSONArray))
+        {
+            throw new JSONPointerException("Cannot replace the root of an ImmutableJSONArray with " + result + ".");
+        }
+        return (ImmutableJSONArray) result;
+    }
+
+    public ImmutableJSONArray withoutLast() throws JSONException
+    {
+        if (this.length == 0)
+        {
+            throw new JSONException("ImmutableJSONArray is empty.");
+        }
+        if (this.length == 1)
+        {
+            return EMPTY;
+        }
+        if ((this.length - this.tailOffset()) > 1)
+        {
+            return new ImmutableJSONArray(this.length - 1, this.shift, this.root, Arrays.copyOf(this.tail, this.tail.length - 1));
+        }
+        Object[] tail = this.arrayFor(this.length - 2);
+        Object[] root = this.popTail(this.shift, this.root);
+        int shift = this.shift;
+        if (root == null)
+        {
+            root = EMPTY_NODE;
+        }
+        if ((this.shift > BITS) && (root[1] == null))
+        {
+            root = (Object[]) root[0];
+            shift -= BITS;
+        }
+        return new ImmutableJSONArray(this.length - 1, shift, root, tail);
+    }
+
+    private Object[] popTail(int level, Object[] node)
+    {
+        int index = ((this.length - 2) >>> level) & MASK;
+        if (level > BITS)
+        {
+            Object[] child = this.popTail(level - BITS, (Object[]) node[index]);
+            if ((child == null) && (index == 0))
+            {
+                return null;
+            }
+            Object[] copy = node.clone();
+            copy[index] = child;
+            return copy;
+        }
+        if (index == 0)
+        {
+            return null;
+        }
+        Object[] copy = node.clone();
+        copy[index] = null;
+        return copy;
+    }
+
+    public Object query(JSONPointer pointer)
+    {
+        return JSONStructure.query(this, pointer.getRefTokens());
+    }
+
+    @Override
+    public Iterator<Object> iterator()
+    {
+        return new Iterator<Object>()
+        {
+            private int      index;
+            private Object[] array;
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.index < ImmutableJSONArray.this.length;
+            }
+
+            @Override
+            public Object next()
+            {
+                if (this.index >= ImmutableJSONArray.this.length)
+                {
+                    throw new NoSuchElementException();
+                }
+                if ((this.index & MASK) == 0)
+                {
+                    this.array = ImmutableJSONArray.this.arrayFor(this.index);
+                }
+                Object val = this.array[this.index & MASK];
+                this.index += 1;
+                return val;
+            }
+        };
+    }
+
+    public JSONArray toJSONArray()
+    {
+        JSONArray array = new JSONArray();
+        for (Object val : this)
+        {
+            array.put(JSONStructure.thaw(val));
+        }
+        return array;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (! (obj instanceof ImmutableJSONArray))
+        {
+            return false;
+        }
+        ImmutableJSONArray other = (ImmutableJSONArray) obj;
+        if ((this.length != other.length) || (this.hashCode() != other.hashCode()))
+        {
+            return false;
+        }
+        Iterator<Object> otherIterator = other.iterator();
+        for (Object val : this)
+        {
+            if (! val.equals(otherIterator.next()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hashCode = this.hashCode;
+        if (hashCode == 0)
+        {
+            hashCode = 1;
+            for (Object val : this)
+            {
+                hashCode = (31 * hashCode) + val.hashCode();
+            }
+            this.hashCode = hashCode;
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString()
+    {
+        try
+        {
+            return this.toString(0);
+        }
+        catch (Exception ex)
+        {
+            return null;
+        }
+    }
+
+    public String toString(int indentFactor) throws JSONException
+    {
+        try (StringWriter writer = new StringWriter())
+        {
+            synchronized (writer.getBuffer())
+            {
+                return this.write(writer, indentFactor, 0).toString();
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new JSONException(ex);
+        }
+    }
+
+    public Writer write(Writer writer, int indentFactor, int indent) throws JSONException
+    {
+        try
+        {
+            boolean commanate = false;
+            writer.write('[');
+            if (this.length != 0)
+            {
+                int newIndent = (this.length == 1) ? indent : (indent + indentFactor);
+                for (Object val : this)
+                {
+                    if (commanate)
+                    {
+                        writer.write(',');
+                    }
+                    if ((indentFactor > 0) && (this.length > 1))
+                    {
+                        writer.write('\n');
+                        JSONObject.indent(writer, newIndent);
+                    }
+                    JSONObject.writeValue(writer, val, indentFactor, newIndent);
+                    commanate = true;
+                }
+                if ((indentFactor > 0) && (this.length > 1))
+                {
+                    writer.write('\n');
+                    JSONObject.indent(writer, indent);
+                }
+            }
+            writer.write(']');
+            return writer;
+        }
+        catch (IOException ex)
+        {
+            throw new JSONException(ex);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,593 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+public final class ImmutableJSONObject implements Iterable<Entry<String, Object>>
+{
+    private static final ImmutableJSONObject EMPTY = new ImmutableJSONObject(null, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private abstract static class Node
+    {
+        abstract Object find(int shift, int hash, String key);
+
+        abstract Node with(int shift, int hash, String key, Object val, boolean[] added);
+
+        abstract Node without(int shift, int hash, String key);
+
+        abstract Object[] array();
+    }
+
+    private static final class BitmapNode extends Node
+    {
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int      bitmap;
+        private final Object[] array;
+
+        private BitmapNode(int bitmap, Object[] array)
+        {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit)
+        {
+            return Integer.bitCount(this.bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, String key)
+        {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((this.bitmap & bit) == 0)
+            {
+                return null;
+            }
+            int idx = this.index(bit);
+            Object keyOrNull = this.array[2 * idx];
+            Object valOrNode = this.array[(2 * idx) + 1];
+            if (keyOrNull == null)
+            {
+                return ((Node) valOrNode).find(shift + BITS, hash, key);
+            }
+            return key.equals(keyOrNull) ? valOrNode : null;
+        }
+
+        @Override
+        Node with(int shift, int hash, String key, Object val, boolean[] added)
+        {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int idx = this.index(bit);
+            if ((this.bitmap & bit) != 0)
+            {
+                Object keyOrNull = this.array[2 * idx];
+                Object valOrNode = this.array[(2 * idx) + 1];
+                if (keyOrNull == null)
+                {
+                    Node node = ((Node) valOrNode).with(shift + BITS, hash, key, val, added);
+                    return (node == valOrNode) ? this : new BitmapNode(this.bitmap, replace(this.array, (2 * idx) + 1, node));
+                }
+                if (key.equals(keyOrNull))
+                {
+                    return (val == valOrNode) ? this : new BitmapNode(this.bitmap, replace(this.array, (2 * idx) + 1, val));
+                }
+                added[0] = true;
+                Object[] array = replace(this.array, 2 * idx, null);
+                array[(2 * idx) + 1] = createNode(shift + BITS, (String) keyOrNull, valOrNode, hash, key, val);
+                return new BitmapNode(this.bitmap, array);
+            }
+            added[0] = true;
+            Object[] array = new Object[this.array.length + 2];
+            System.arraycopy(this.array, 0, array, 0, 2 * idx);
+            array[2 * idx] = key;
+            array[(2 * idx) + 1] = val;
+            System.arraycopy(this.array, 2 * idx, array, (2 * idx) + 2, this.array.length - (2 * idx));
+            return new BitmapNode(this.bitmap | bit, array);
+        }
+
+        @Override
+        Node without(int shift, int hash, String key)
+        {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((this.bitmap & bit) == 0)
+            {
+                return this;
+            }
+            int idx = this.index(bit);
+            Object keyOrNull = this.array[2 * idx];
+            Object valOrNode = this.array[(2 * idx) + 1];
+            if (keyOrNull == null)
+            {
+                Node node = ((Node) valOrNode).without(shift + BITS, hash, key);
+                if (node == valOrNode)
+                {
+                    return this;
+                }
+                if (node != null)
+                {
+                    return new BitmapNode(this.bitmap, replace(this.array, (2 * idx) + 1, node));
+                }
+            }
+            else if (! key.equals(keyOrNull))
+            {
+                return this;
+            }
+            if (this.bitmap == bit)
+            {
+                return null;
+            }
+            Object[] array = new Object[this.array.length - 2];
+            System.arraycopy(this.array, 0, array, 0, 2 * idx);
+            System.arraycopy(this.array, (2 * idx) + 2, array, 2 * idx, array.length - (2 * idx));
+            return new BitmapNode(this.bitmap ^ bit, array);
+        }
+
+        @Override
+        Object[] array()
+        {
+            return this.array;
+        }
+
+        private static Node createNode(int shift, String key1, Object val1, int hash2, String key2, Object val2)
+        {
+            int hash1 = hash(key1);
+            if (hash1 == hash2)
+            {
+                return new CollisionNode(hash1, new Object[] {key1, val1, key2, val2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY.with(shift, hash1, key1, val1, added).with(shift, hash2, key2, val2, added);
+        }
+    }
+
+    private static final class CollisionNode extends Node
+    {
+        private final int      hash;
+        private final Object[] array;
+
+        private CollisionNode(int hash, Object[] array)
+        {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(String key)
+        {
+            for (int i = 0; i < this.array.length; i += 2)
+            {
+                if (key.equals(this.array[i]))
+                {
+                    return i;
+                }
+            }
+            return - 1;
+        }
+
+        @Override
+        Object find(int shift, int hash, String key)
+        {
+            int idx = this.indexOf(key);
+            return (idx < 0) ? null : this.array[idx + 1];
+        }
+
+        @Override
+        Node with(int shift, int hash, String key, Object val, boolean[] added)
+        {
+            if (hash != this.hash)
+            {
+                return new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[] {null, this}).with(shift, hash, key, val, added);
+            }
+            int idx = this.indexOf(key);
+            if (idx >= 0)
+            {
+                return (this.array[idx + 1] == val) ? this : new CollisionNode(hash, replace(this.array, idx + 1, val));
+            }
+            added[0] = true;
+            Object[] array = new Object[this.array.length + 2];
+            System.arraycopy(this.array, 0, array, 0, this.array.length);
+            array[this.array.length] = key;
+            array[this.array.length + 1] = val;
+            return new CollisionNode(hash, array);
+        }
+
+        @Override
+        Node without(int shift, int hash, String key)
+        {
+            int idx = this.indexOf(key);
+            if (idx < 0)
+            {
+                return this;
+            }
+            if (this.array.length == 2)
+            {
+                return null;
+            }
+            Object[] array = new Object[this.array.length - 2];
+            System.arraycopy(this.array, 0, array, 0, idx);
+            System.arraycopy(this.array, idx + 2, array, idx, array.length - idx);
+            return new CollisionNode(hash, array);
+        }
+
+        @Override
+        Object[] array()
+        {
+            return this.array;
+        }
+    }
+
+    private final Node root;
+    private final int  length;
+    private       int  hashCode;
+
+    private ImmutableJSONObject(Node root, int length)
+    {
+        this.root = root;
+        this.length = length;
+    }
+
+    public static ImmutableJSONObject empty()
+    {
+        return EMPTY;
+    }
+
+    public static ImmutableJSONObject from(JSONObject obj)
+    {
+        ImmutableJSONObject result = EMPTY;
+        for (Entry<String, Object> entry : obj.entrySet())
+        {
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static int hash(String key)
+    {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static Object[] replace(Object[] array, int index, Object val)
+    {
+        Object[] copy = array.clone();
+        copy[index] = val;
+        return copy;
+    }
+
+    public Object opt(String key)
+    {
+        return ((key == null) || (this.root == null)) ? null : this.root.find(0, hash(key), key);
+    }
+
+    public Object get(String key) throws JSONException
+    {
+        if (key == null)
+        {
+            throw new JSONException("Null key.");
+        }
+        Object obj = this.opt(key);
+        if (obj == null)
+        {
+            throw new JSONException("ImmutableJSONObject[" + JSONObject.quote(key) + "] not found.");
+        }
+        return obj;
+    }
+
+    public boolean has(String key)
+    {
+        return this.opt(key) != null;
+    }
+
+    public boolean isNull(String key)
+    {
+        return JSONObject.NULL.equals(this.opt(key));
+    }
+
+    public int length()
+    {
+        return this.length;
+    }
+
+    public String optString(String key)
+    {
+        return this.optString(key, "");
+    }
+
+    public String optString(String key, String defaultValue)
+    {
+        Object obj = this.opt(key);
+        return JSONObject.NULL.equals(obj) ? defaultValue : obj.toString();
+    }
+
+    public ImmutableJSONObject optImmutableJSONObject(String key)
+    {
+        Object obj = this.opt(key);
+        return (obj instanceof ImmutableJSONObject) ? (ImmutableJSONObject) obj : null;
+    }
+
+    public ImmutableJSONArray optImmutableJSONArray(String key)
+    {
+        Object obj = this.opt(key);
+        return (obj instanceof ImmutableJSONArray) ? (ImmutableJSONArray) obj : null;
+    }
+
+    public ImmutableJSONObject with(String key, Object val) throws JSONException
+    {
+        if (key == null)
+        {
+            throw new NullPointerException("Null key.");
+        }
+        if (val == null)
+        {
+            return this.without(key);
+        }
+        val = JSONStructure.freeze(val);
+        boolean[] added = new boolean[1];
+        Node root = ((this.root == null) ? BitmapNode.EMPTY : this.root).with(0, hash(key), key, val, added);
+        return (root == this.root) ? this : new ImmutableJSONObject(root, added[0] ? (this.length + 1) : this.length);
+    }
+
+    public ImmutableJSONObject with(JSONPointer pointer, Object val) throws JSONException
+    {
+        Object result = JSONStructure.withPath(this, pointer.getRefTokens(), 0, val);
+        if (! (result instanceof ImmutableJSONObject))
+        {
+            throw new JSONPointerException("Cannot replace the root of an ImmutableJSONObject with " + result + ".");
+        }
+        return (ImmutableJSONObject) result;
+    }
+
+    public ImmutableJSONObject without(String key)
+    {
+        if ((key == null) || (this.root == null))
+        {
+            return this;
+        }
+        Node root = this.root.without(0, hash(key), key);
+        if (root == this.root)
+        {
+            return this;
+        }
+        return (root == null) ? EMPTY : new ImmutableJSONObject(root, this.length - 1);
+    }
+
+    public Object query(JSONPointer pointer)
+    {
+        return JSONStructure.query(this, pointer.getRefTokens());
+    }
+
+    public Iterator<String> keys()
+    {
+        Iterator<Entry<String, Object>> entries = this.iterator();
+        return new Iterator<String>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return entries.hasNext();
+            }
+
+            @Override
+            public String next()
+            {
+                return entries.next().getKey();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Entry<String, Object>> iterator()
+    {
+        Deque<Object[]> arrays = new ArrayDeque<>(8);
+        Deque<Integer> positions = new ArrayDeque<>(8);
+        if (this.root != null)
+        {
+            arrays.push(this.root.array());
+            positions.push(0);
+        }
+        return new Iterator<Entry<String, Object>>()
+        {
+            private Entry<String, Object> next = this.advance();
+
+            private Entry<String, Object> advance()
+            {
+                while (! arrays.isEmpty())
+                {
+                    Object[] array = arrays.peek();
+                    int position = positions.pop();
+                    if (position >= array.length)
+                    {
+                        arrays.pop();
+                        continue;
+                    }
+                    positions.push(position + 2);
+                    Object keyOrNull = array[position];
+                    if (keyOrNull == null)
+                    {
+                        arrays.push(((Node) array[position + 1]).array());
+                        positions.push(0);
+                        continue;
+                    }
+                    return new SimpleImmutableEntry<>((String) keyOrNull, array[position + 1]);
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.next != null;
+            }
+
+            @Override
+            public Entry<String, Object> next()
+            {
+                if (this.next == null)
+                {
+                    throw new NoSuchElementException();
+                }
+                Entry<String, Object> entry = this.next;
+                this.next = this.advance();
+                return entry;
+            }
+        };
+    }
+
+    public JSONObject toJSONObject()
+    {
+        JSONObject obj = new JSONObject();
+        for (Entry<String, Object> entry : this)
+        {
+            obj.put(entry.getKey(), JSONStructure.thaw(entry.getValue()));
+        }
+        return obj;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (! (obj instanceof ImmutableJSONObject))
+        {
+            return false;
+        }
+        ImmutableJSONObject other = (ImmutableJSONObject) obj;
+        if ((this.length != other.length) || (this.hashCode() != other.hashCode()))
+        {
+            return false;
+        }
+        for (Entry<String, Object> entry : this)
+        {
+            Object otherVal = other.opt(entry.getKey());
+            if ((otherVal == null) || ! entry.getValue().equals(otherVal))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hashCode = this.hashCode;
+        if ((hashCode == 0) && (this.length > 0))
+        {
+            for (Entry<String, Object> entry : this)
+            {
+                hashCode += entry.getKey().hashCode() ^ entry.getValue().hashCode();
+            }
+            this.hashCode = hashCode;
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString()
+    {
+        try
+        {
+            return this.toString(0);
+        }
+        catch (Exception ex)
+        {
+            return null;
+        }
+    }
+
+    public String toString(int indentFactor) throws JSONException
+    {
+        try (StringWriter writer = new StringWriter())
+        {
+            synchronized (writer.getBuffer())
+            {
+                return this.write(writer, indentFactor, 0).toString();
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new JSONException(ex);
+        }
+    }
+
+    public Writer write(Writer writer, int indentFactor, int indent) throws JSONException
+    {
+        try
+        {
+            boolean commanate = false;
+            writer.write('{');
+            if (this.length != 0)
+            {
+                int newIndent = (this.length == 1) ? indent : (indent + indentFactor);
+                for (Entry<String, Object> entry : this)
+                {
+                    if (commanate)
+                    {
+                        writer.write(',');
+                    }
+                    if ((indentFactor > 0) && (this.length > 1))
+                    {
+                        writer.write('\n');
+                        JSONObject.indent(writer, newIndent);
+                    }
+                    JSONObject.quote(entry.getKey(), writer);
+                    writer.write(':');
+                    if (indentFactor > 0)
+                    {
+                        writer.write(' ');
+                    }
+                    JSONObject.writeValue(writer, entry.getValue(), indentFactor, newIndent);
+                    commanate = true;
+                }
+                if ((indentFactor > 0) && (this.length > 1))
+                {
+                    writer.write('\n');
+                    JSONObject.indent(writer, indent);
+                }
+            }
+            writer.write('}');
+            return writer;
+        }
+        catch (IOException ex)
+        {
+            throw new JSONException(ex);
+        }
+    }
+}
\ No newline at end of file
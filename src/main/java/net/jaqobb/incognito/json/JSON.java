@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.io.Reader;
+
+public final class JSON
+{
+    private static volatile Listener listener;
+
+    public interface Listener
+    {
+        void parsed(int length, long nanos);
+
+        void serialized(int length, long nanos);
+    }
+
+    private JSON()
+    {
+    }
+
+    public static Listener getListener()
+    {
+        return listener;
+    }
+
+    public static void setListener(Listener listener)
+    {
+        JSON.listener = listener;
+    }
+
+    static long startTiming()
+    {
+        return (listener != null) ? System.nanoTime() : 0L;
+    }
+
+    static void parsed(long start, int length)
+    {
+        Listener listener = JSON.listener;
+        if ((start != 0L) && (listener != null))
+        {
+            listener.parsed(length, System.nanoTime() - start);
+        }
+    }
+
+    static void serialized(long start, int length)
+    {
+        Listener listener = JSON.listener;
+        if ((start != 0L) && (listener != null))
+        {
+            listener.serialized(length, System.nanoTime() - start);
+        }
+    }
+
+    public static long validate(String src)
+    {
+        return new JSONTokener(src).validate();
+    }
+
+    public static long validate(Reader reader) throws JSONException
+    {
+        return new JSONTokener(reader).validate();
+    }
+
+    public static boolean isValid(String src)
+    {
+        return validate(src) < 0;
+    }
+
+    public static boolean isValid(Reader reader) throws JSONException
+    {
+        return validate(reader) < 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Backing list for the arrays ConcurrentJSONObject hands out from accumulate and append. Each
+// version sees a fixed prefix of a shared buffer, so appending to the newest version writes one
+// slot instead of copying the whole array; an older version that is appended to again, or that a
+// caller mutates directly, falls back to a private copy.
+final class JSONAppendList extends AbstractList<Object> implements RandomAccess
+{
+    private static final class Buffer
+    {
+        private final Object[] elements;
+        private       int      claimed;
+
+        Buffer(Object[] elements, int claimed)
+        {
+            this.elements = elements;
+            this.claimed = claimed;
+        }
+    }
+
+    private final Buffer       buffer;
+    private final int          size;
+    private       List<Object> detached;
+
+    private JSONAppendList(Buffer buffer, int size)
+    {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    static JSONArray appended(JSONArray array, Object val)
+    {
+        List<Object> list = array.list();
+        if (list instanceof JSONAppendList)
+        {
+            return JSONArray.backedBy(((JSONAppendList) list).appended(val));
+        }
+        Object[] elements = Arrays.copyOf(list.toArray(), Math.max(10, list.size() * 2));
+        elements[list.size()] = val;
+        return JSONArray.backedBy(new JSONAppendList(new Buffer(elements, list.size() + 1), list.size() + 1));
+    }
+
+    private List<Object> appended(Object val)
+    {
+        if (this.detached == null)
+        {
+            synchronized (this.buffer)
+            {
+                if ((this.buffer.claimed == this.size) && (this.size < this.buffer.elements.length))
+                {
+                    this.buffer.elements[this.size] = val;
+                    this.buffer.claimed += 1;
+                    return new JSONAppendList(this.buffer, this.size + 1);
+                }
+            }
+        }
+        Object[] elements = Arrays.copyOf(this.toArray(), Math.max(10, this.size() * 2));
+        elements[this.size()] = val;
+        return new JSONAppendList(new Buffer(elements, this.size() + 1), this.size() + 1);
+    }
+
+    private List<Object> detach()
+    {
+        if (this.detached == null)
+        {
+            this.detached = new ArrayList<>(Arrays.asList(this.buffer.elements).subList(0, this.size));
+        }
+        return this.detached;
+    }
+
+    @Override
+    public Object get(int index)
+    {
+        if (this.detached != null)
+        {
+            return this.detached.get(index);
+        }
+        if ((index < 0) || (index >= this.size))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return this.buffer.elements[index];
+    }
+
+    @Override
+    public int size()
+    {
+        return (this.detached != null) ? this.detached.size() : this.size;
+    }
+
+    @Override
+    public Object set(int index, Object val)
+    {
+        return this.detach().set(index, val);
+    }
+
+    @Override
+    public void add(int index, Object val)
+    {
+        this.modCount += 1;
+        this.detach().add(index, val);
+    }
+
+    @Override
+    public Object remove(int index)
+    {
+        this.modCount += 1;
+        return this.detach().remove(index);
+    }
+}
@@ -24,6 +24,7 @@
 
 package net.jaqobb.incognito.json;
 
+import java.io.CharArrayReader;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -31,6 +32,7 @@ import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -38,19 +40,40 @@ import java.util.Map;
 
 public class JSONArray implements Iterable<Object>
 {
-    private final ArrayList<Object> list = new ArrayList<>(10);
+    private final List<Object> list;
+
+    private volatile JSONStructure.Hash structuralHash;
+    private volatile int                structuralVersion;
 
     public JSONArray()
     {
+        this(new ArrayList<>(10));
+    }
+
+    private JSONArray(List<Object> list)
+    {
+        this.list = list;
+    }
+
+    // Shares the given list rather than wrapping its elements, so callers hand over ownership.
+    static JSONArray backedBy(List<Object> list)
+    {
+        return new JSONArray(list);
     }
 
     public JSONArray(JSONTokener tokener) throws JSONException
     {
+        this();
         if (tokener.nextClean() != '[')
         {
             throw tokener.syntaxError("A JSONArray text must start with '['.");
         }
-        if (tokener.nextClean() != ']')
+        char ch = tokener.nextClean();
+        if (ch == 0)
+        {
+            throw tokener.syntaxError("A JSONArray text must end with ']'.");
+        }
+        if (ch != ']')
         {
             tokener.back();
             while (true)
@@ -68,7 +91,12 @@ public class JSONArray implements Iterable<Object>
                 switch (tokener.nextClean())
                 {
                     case ',':
-                        if (tokener.nextClean() == ']')
+                        ch = tokener.nextClean();
+                        if (ch == 0)
+                        {
+                            throw tokener.syntaxError("A JSONArray text must end with ']'.");
+                        }
+                        if (ch == ']')
                         {
                             return;
                         }
@@ -85,11 +113,48 @@ public class JSONArray implements Iterable<Object>
 
     public JSONArray(String src) throws JSONException
     {
-        this(new JSONTokener(src));
+        this(new JSONTokener(src), src.length(), JSON.startTiming());
+    }
+
+    public JSONArray(String src, JSONNumberPolicy numberPolicy) throws JSONException
+    {
+        this(new JSONTokener(src, numberPolicy), src.length(), JSON.startTiming());
+    }
+
+    private JSONArray(JSONTokener tokener, int length, long start) throws JSONException
+    {
+        this(tokener);
+        JSON.parsed(start, length);
+    }
+
+    public static JSONArray parseParallel(String src) throws JSONException
+    {
+        return parseParallel(src.toCharArray(), JSONNumberPolicy.DEFAULT);
+    }
+
+    public static JSONArray parseParallel(String src, JSONNumberPolicy numberPolicy) throws JSONException
+    {
+        return parseParallel(src.toCharArray(), numberPolicy);
+    }
+
+    public static JSONArray parseParallel(char[] src) throws JSONException
+    {
+        return parseParallel(src, JSONNumberPolicy.DEFAULT);
+    }
+
+    public static JSONArray parseParallel(char[] src, JSONNumberPolicy numberPolicy) throws JSONException
+    {
+        Object[] values = JSONParallelParser.parse(src, numberPolicy);
+        if (values == null)
+        {
+            return new JSONArray(new JSONTokener(new CharArrayReader(src), numberPolicy));
+        }
+        return new JSONArray(new ArrayList<>(Arrays.asList(values)));
     }
 
     public JSONArray(Collection<?> coll)
     {
+        this(new ArrayList<>(Math.max(10, coll.size())));
         for (Object obj : coll)
         {
             this.list.add(JSONObject.wrap(obj));
@@ -98,10 +163,10 @@ public class JSONArray implements Iterable<Object>
 
     public JSONArray(Object array) throws JSONException
     {
+        this(new ArrayList<>(array.getClass().isArray() ? Array.getLength(array) : 0));
         if (array.getClass().isArray())
         {
             int length = Array.getLength(array);
-            this.list.ensureCapacity(length);
             for (int i = 0; i < length; i += 1)
             {
                 this.put(JSONObject.wrap(Array.get(array, i)));
@@ -116,7 +181,28 @@ public class JSONArray implements Iterable<Object>
     @Override
     public Iterator<Object> iterator()
     {
-        return this.list.iterator();
+        Iterator<Object> iterator = this.list.iterator();
+        return new Iterator<Object>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Object next()
+            {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove()
+            {
+                iterator.remove();
+                JSONStructure.touch(JSONArray.this);
+            }
+        };
     }
 
     public Object get(int index) throws JSONException
@@ -315,14 +401,23 @@ public class JSONArray implements Iterable<Object>
 
     public boolean optBoolean(int index, boolean defaultValue)
     {
-        try
+        Object val = this.opt(index);
+        if (val instanceof Boolean)
         {
-            return this.getBoolean(index);
+            return (Boolean) val;
         }
-        catch (Exception ex)
+        if (val instanceof String)
         {
-            return defaultValue;
+            if (((String) val).equalsIgnoreCase("true"))
+            {
+                return true;
+            }
+            if (((String) val).equalsIgnoreCase("false"))
+            {
+                return false;
+            }
         }
+        return defaultValue;
     }
 
     public double optDouble(int index)
@@ -343,14 +438,7 @@ public class JSONArray implements Iterable<Object>
         }
         if (val instanceof String)
         {
-            try
-            {
-                return Double.parseDouble((String) val);
-            }
-            catch (Exception ex)
-            {
-                return defaultValue;
-            }
+            return JSONNumbers.toDouble((String) val, defaultValue);
         }
         return defaultValue;
     }
@@ -373,14 +461,7 @@ public class JSONArray implements Iterable<Object>
         }
         if (val instanceof String)
         {
-            try
-            {
-                return Float.parseFloat((String) val);
-            }
-            catch (Exception ex)
-            {
-                return defaultValue;
-            }
+            return JSONNumbers.toFloat((String) val, defaultValue);
         }
         return defaultValue;
     }
@@ -401,17 +482,9 @@ public class JSONArray implements Iterable<Object>
         {
             return ((Number) val).intValue();
         }
-
         if (val instanceof String)
         {
-            try
-            {
-                return new BigDecimal(val.toString()).intValue();
-            }
-            catch (Exception ex)
-            {
-                return defaultValue;
-            }
+            return JSONNumbers.toInt((String) val, defaultValue);
         }
         return defaultValue;
     }
@@ -466,19 +539,16 @@ public class JSONArray implements Iterable<Object>
         {
             return BigInteger.valueOf(((Number) val).longValue());
         }
-        try
+        String valStr = val.toString();
+        if (! JSONNumbers.isDecimal(valStr))
         {
-            String valStr = val.toString();
-            if (JSONObject.isDecimalNotation(valStr))
-            {
-                return new BigDecimal(valStr).toBigInteger();
-            }
-            return new BigInteger(valStr);
+            return defaultValue;
         }
-        catch (Exception ex)
+        if (JSONObject.isDecimalNotation(valStr))
         {
-            return defaultValue;
+            return new BigDecimal(valStr).toBigInteger();
         }
+        return new BigInteger(valStr);
     }
 
     public BigDecimal optBigDecimal(int index, BigDecimal defaultValue)
@@ -504,14 +574,8 @@ public class JSONArray implements Iterable<Object>
         {
             return new BigDecimal(((Number) val).longValue());
         }
-        try
-        {
-            return new BigDecimal(val.toString());
-        }
-        catch (Exception ex)
-        {
-            return defaultValue;
-        }
+        String valStr = val.toString();
+        return JSONNumbers.isDecimal(valStr) ? new BigDecimal(valStr) : defaultValue;
     }
 
     public JSONArray optJSONArray(int index)
@@ -542,17 +606,9 @@ public class JSONArray implements Iterable<Object>
         {
             return ((Number) val).longValue();
         }
-
         if (val instanceof String)
         {
-            try
-            {
-                return new BigDecimal(val.toString()).longValue();
-            }
-            catch (Exception ex)
-            {
-                return defaultValue;
-            }
+            return JSONNumbers.toLong((String) val, defaultValue);
         }
         return defaultValue;
     }
@@ -573,17 +629,9 @@ public class JSONArray implements Iterable<Object>
         {
             return (Number) val;
         }
-
-        if (val instanceof String)
+        if ((val instanceof String) && JSONNumbers.isNumber((String) val))
         {
-            try
-            {
-                return JSONObject.stringToNumber((String) val);
-            }
-            catch (Exception ex)
-            {
-                return defaultValue;
-            }
+            return JSONObject.stringToNumber((String) val);
         }
         return defaultValue;
     }
@@ -639,9 +687,15 @@ public class JSONArray implements Iterable<Object>
     public JSONArray put(Object val)
     {
         this.list.add(val);
+        JSONStructure.touch(this);
         return this;
     }
 
+    void addParsed(Object val)
+    {
+        this.list.add(val);
+    }
+
     public JSONArray put(int index, boolean val) throws JSONException
     {
         this.put(index, val ? Boolean.TRUE : Boolean.FALSE);
@@ -688,6 +742,7 @@ public class JSONArray implements Iterable<Object>
         if (index < this.length())
         {
             this.list.set(index, val);
+            JSONStructure.touch(this);
         }
         else if (index == this.length())
         {
@@ -695,7 +750,10 @@ public class JSONArray implements Iterable<Object>
         }
         else
         {
-            this.list.ensureCapacity(index + 1);
+            if (this.list instanceof ArrayList)
+            {
+                ((ArrayList<Object>) this.list).ensureCapacity(index + 1);
+            }
             while (index != this.length())
             {
                 this.put(JSONObject.NULL);
@@ -705,6 +763,17 @@ public class JSONArray implements Iterable<Object>
         return this;
     }
 
+    void insert(int index, Object val) throws JSONException
+    {
+        JSONObject.testValidity(val);
+        if ((index < 0) || (index > this.length()))
+        {
+            throw new JSONException("JSONArray[" + index + "] not found.");
+        }
+        this.list.add(index, val);
+        JSONStructure.touch(this);
+    }
+
     public Object query(String pointer)
     {
         return this.query(new JSONPointer(pointer));
@@ -734,52 +803,54 @@ public class JSONArray implements Iterable<Object>
 
     public Object remove(int index)
     {
-        return ((index >= 0) && (index < this.length())) ? this.list.remove(index) : null;
+        if ((index < 0) || (index >= this.length()))
+        {
+            return null;
+        }
+        Object removed = this.list.remove(index);
+        JSONStructure.touch(this);
+        return removed;
     }
 
     public boolean isSimilar(Object other)
     {
-        if (! (other instanceof JSONArray))
-        {
-            return false;
-        }
-        int len = this.length();
-        if (len != ((JSONArray) other).length())
-        {
-            return false;
-        }
-        for (int i = 0; i < len; i += 1)
+        return (other instanceof JSONArray) && JSONStructure.similar(this, other);
+    }
+
+    public int structuralHashCode()
+    {
+        return JSONStructure.hash(this);
+    }
+
+    JSONStructure.Hash getStructuralHash()
+    {
+        return this.structuralHash;
+    }
+
+    void setStructuralHash(JSONStructure.Hash hash)
+    {
+        this.structuralHash = hash;
+    }
+
+    List<Object> list()
+    {
+        return this.list;
+    }
+
+    int getStructuralVersion()
+    {
+        return this.structuralVersion;
+    }
+
+    JSONStructure.Hash invalidateStructuralHash()
+    {
+        this.structuralVersion += 1;
+        JSONStructure.Hash hash = this.structuralHash;
+        if (hash != null)
         {
-            Object valueThis = this.list.get(i);
-            Object valueOther = ((JSONArray) other).list.get(i);
-            if (valueThis == null)
-            {
-                return false;
-            }
-            if (valueThis.equals(valueOther))
-            {
-                return true;
-            }
-            if (valueThis instanceof JSONObject)
-            {
-                if (! ((JSONObject) valueThis).similar(valueOther))
-                {
-                    return false;
-                }
-            }
-            else if (valueThis instanceof JSONArray)
-            {
-                if (! ((JSONArray) valueThis).isSimilar(valueOther))
-                {
-                    return false;
-                }
-            }
-            else if (! valueThis.equals(valueOther))
-            {
-                return false;
-            }
+            this.structuralHash = null;
         }
-        return true;
+        return hash;
     }
 
     public JSONObject toJSONObject(JSONArray array) throws JSONException
@@ -811,11 +882,14 @@ public class JSONArray implements Iterable<Object>
 
     public String toString(int indentFactor) throws JSONException
     {
+        long start = JSON.startTiming();
         try (StringWriter writer = new StringWriter())
         {
             synchronized (writer.getBuffer())
             {
-                return this.write(writer, indentFactor, 0).toString();
+                String str = this.write(writer, indentFactor, 0).toString();
+                JSON.serialized(start, str.length());
+                return str;
             }
         }
         catch (IOException ex)
@@ -886,6 +960,11 @@ public class JSONArray implements Iterable<Object>
         }
     }
 
+    public List<Object> asList()
+    {
+        return new JSONViews.ListView(this);
+    }
+
     public List<Object> toList()
     {
         List<Object> results = new ArrayList<>(this.list.size());
@@ -28,18 +28,59 @@ public class JSONException extends RuntimeException
 {
     private static final long serialVersionUID = - 5716863783268379619L;
 
+    private static volatile boolean stackTraceEnabled = Boolean.parseBoolean(System.getProperty("net.jaqobb.incognito.json.stackTraces", "true"));
+
+    private final long   index;
+    private final long   character;
+    private final long   line;
+    private       String formattedMessage;
+
     public JSONException(String message)
     {
-        super(message);
+        this(message, null);
     }
 
     public JSONException(String message, Throwable cause)
     {
-        super(message, cause);
+        this(message, - 1L, - 1L, - 1L, cause);
     }
 
     public JSONException(Throwable cause)
     {
-        super(cause.getMessage(), cause);
+        this(cause.getMessage(), cause);
+    }
+
+    JSONException(String message, long index, long character, long line, Throwable cause)
+    {
+        super(message, cause, true, stackTraceEnabled);
+        this.index = index;
+        this.character = character;
+        this.line = line;
+    }
+
+    public static boolean isStackTraceEnabled()
+    {
+        return stackTraceEnabled;
+    }
+
+    public static void setStackTraceEnabled(boolean enabled)
+    {
+        stackTraceEnabled = enabled;
+    }
+
+    @Override
+    public String getMessage()
+    {
+        if (this.index < 0)
+        {
+            return super.getMessage();
+        }
+        String message = this.formattedMessage;
+        if (message == null)
+        {
+            message = super.getMessage() + " at " + this.index + " [character " + this.character + " line " + this.line + "]";
+            this.formattedMessage = message;
+        }
+        return message;
     }
 }
\ No newline at end of file
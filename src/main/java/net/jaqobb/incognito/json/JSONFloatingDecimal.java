@@ -0,0 +1,378 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.json;
+
+import java.math.BigInteger;
+
+final class JSONFloatingDecimal
+{
+    static final int MAX_CHARS = 32;
+
+    private static final int  DOUBLE_P       = 53;
+    private static final int  DOUBLE_Q_MIN   = - 1074;
+    private static final long DOUBLE_C_MIN   = 1L << (DOUBLE_P - 1);
+    private static final long DOUBLE_C_TINY  = 3L;
+    private static final int  DOUBLE_BQ_MASK = 0x7FF;
+    private static final long DOUBLE_T_MASK  = DOUBLE_C_MIN - 1;
+
+    private static final int FLOAT_P       = 24;
+    private static final int FLOAT_Q_MIN   = - 149;
+    private static final int FLOAT_C_MIN   = 1 << (FLOAT_P - 1);
+    private static final int FLOAT_C_TINY  = 8;
+    private static final int FLOAT_BQ_MASK = 0xFF;
+    private static final int FLOAT_T_MASK  = FLOAT_C_MIN - 1;
+
+    private static final int  K_MIN   = - 324;
+    private static final int  K_MAX   = 292;
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final long MASK_32 = (1L << 32) - 1;
+
+    private static final long[] G = new long[(K_MAX - K_MIN + 1) << 1];
+
+    static
+    {
+        for (int k = K_MIN; k <= K_MAX; k += 1)
+        {
+            int shift = 125 - flog2pow10(- k);
+            BigInteger g;
+            if (k <= 0)
+            {
+                BigInteger pow = BigInteger.TEN.pow(- k);
+                g = (shift >= 0) ? pow.shiftLeft(shift) : pow.shiftRight(- shift);
+            }
+            else
+            {
+                g = BigInteger.ONE.shiftLeft(shift).divide(BigInteger.TEN.pow(k));
+            }
+            g = g.add(BigInteger.ONE);
+            G[(k - K_MIN) << 1] = g.shiftRight(63).longValue();
+            G[((k - K_MIN) << 1) + 1] = g.longValue() & MASK_63;
+        }
+    }
+
+    private JSONFloatingDecimal()
+    {
+    }
+
+    static String toString(double val)
+    {
+        char[] buf = new char[MAX_CHARS];
+        return new String(buf, 0, format(val, buf));
+    }
+
+    static String toString(float val)
+    {
+        char[] buf = new char[MAX_CHARS];
+        return new String(buf, 0, format(val, buf));
+    }
+
+    static int format(double val, char[] buf)
+    {
+        long bits = Double.doubleToRawLongBits(val);
+        long t = bits & DOUBLE_T_MASK;
+        int bq = (int) (bits >>> (DOUBLE_P - 1)) & DOUBLE_BQ_MASK;
+        int pos = 0;
+        if (bits < 0)
+        {
+            buf[pos] = '-';
+            pos += 1;
+        }
+        if (bq != 0)
+        {
+            int mq = - DOUBLE_Q_MIN + 1 - bq;
+            long c = DOUBLE_C_MIN | t;
+            if ((0 < mq) && (mq < DOUBLE_P))
+            {
+                long f = c >> mq;
+                if ((f << mq) == c)
+                {
+                    return toChars(buf, pos, f, 0);
+                }
+            }
+            return toDecimal(buf, pos, - mq, c, 0);
+        }
+        if (t != 0)
+        {
+            return (t < DOUBLE_C_TINY) ? toDecimal(buf, pos, DOUBLE_Q_MIN, 10 * t, - 1) : toDecimal(buf, pos, DOUBLE_Q_MIN, t, 0);
+        }
+        buf[pos] = '0';
+        return pos + 1;
+    }
+
+    static int format(float val, char[] buf)
+    {
+        int bits = Float.floatToRawIntBits(val);
+        int t = bits & FLOAT_T_MASK;
+        int bq = (bits >>> (FLOAT_P - 1)) & FLOAT_BQ_MASK;
+        int pos = 0;
+        if (bits < 0)
+        {
+            buf[pos] = '-';
+            pos += 1;
+        }
+        if (bq != 0)
+        {
+            int mq = - FLOAT_Q_MIN + 1 - bq;
+            int c = FLOAT_C_MIN | t;
+            if ((0 < mq) && (mq < FLOAT_P))
+            {
+                int f = c >> mq;
+                if ((f << mq) == c)
+                {
+                    return toChars(buf, pos, f, 0);
+                }
+            }
+            return toDecimal(buf, pos, - mq, c, 0);
+        }
+        if (t != 0)
+        {
+            return (t < FLOAT_C_TINY) ? toDecimal(buf, pos, FLOAT_Q_MIN, 10 * t, - 1) : toDecimal(buf, pos, FLOAT_Q_MIN, t, 0);
+        }
+        buf[pos] = '0';
+        return pos + 1;
+    }
+
+    private static int toDecimal(char[] buf, int pos, int q, long c, int dk)
+    {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if ((c != DOUBLE_C_MIN) || (q == DOUBLE_Q_MIN))
+        {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        }
+        else
+        {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(- k) + 2;
+        long g1 = G[(k - K_MIN) << 1];
+        long g0 = G[((k - K_MIN) << 1) + 1];
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+        long s = vb >> 2;
+        if (s >= 100)
+        {
+            long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = (vbl + out) <= (sp10 << 2);
+            boolean wpin = ((tp10 << 2) + out) <= vbr;
+            if (upin != wpin)
+            {
+                return toChars(buf, pos, upin ? sp10 : tp10, k);
+            }
+        }
+        long t = s + 1;
+        boolean uin = (vbl + out) <= (s << 2);
+        boolean win = ((t << 2) + out) <= vbr;
+        if (uin != win)
+        {
+            return toChars(buf, pos, uin ? s : t, k + dk);
+        }
+        long cmp = vb - ((s + t) << 1);
+        return toChars(buf, pos, ((cmp < 0) || ((cmp == 0) && ((s & 0x1) == 0))) ? s : t, k + dk);
+    }
+
+    private static int toDecimal(char[] buf, int pos, int q, int c, int dk)
+    {
+        int out = c & 0x1;
+        long cb = (long) c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if ((c != FLOAT_C_MIN) || (q == FLOAT_Q_MIN))
+        {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        }
+        else
+        {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(- k) + 33;
+        long g = G[(k - K_MIN) << 1] + 1;
+        int vb = rop(g, cb << h);
+        int vbl = rop(g, cbl << h);
+        int vbr = rop(g, cbr << h);
+        int s = vb >> 2;
+        if (s >= 100)
+        {
+            int sp10 = 10 * (int) ((s * 1717986919L) >>> 34);
+            int tp10 = sp10 + 10;
+            boolean upin = (vbl + out) <= (sp10 << 2);
+            boolean wpin = ((tp10 << 2) + out) <= vbr;
+            if (upin != wpin)
+            {
+                return toChars(buf, pos, upin ? sp10 : tp10, k);
+            }
+        }
+        int t = s + 1;
+        boolean uin = (vbl + out) <= (s << 2);
+        boolean win = ((t << 2) + out) <= vbr;
+        if (uin != win)
+        {
+            return toChars(buf, pos, uin ? s : t, k + dk);
+        }
+        int cmp = vb - ((s + t) << 1);
+        return toChars(buf, pos, ((cmp < 0) || ((cmp == 0) && ((s & 0x1) == 0))) ? s : t, k + dk);
+    }
+
+    private static long rop(long g1, long g0, long cp)
+    {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (((z & MASK_63) + MASK_63) >>> 63);
+    }
+
+    private static int rop(long g, long cp)
+    {
+        long x1 = multiplyHigh(g, cp);
+        long vbp = x1 >>> 31;
+        return (int) (vbp | (((x1 & MASK_32) + MASK_32) >>> 32));
+    }
+
+    private static int toChars(char[] buf, int pos, long f, int e)
+    {
+        while ((f % 10) == 0)
+        {
+            f /= 10;
+            e += 1;
+        }
+        int length = 1;
+        for (long p = 10; (length < 19) && (p <= f); p *= 10)
+        {
+            length += 1;
+        }
+        int exp = e + length;
+        if ((exp > 0) && (exp <= 7))
+        {
+            if (length <= exp)
+            {
+                writeDigits(buf, pos + length, f);
+                for (int i = pos + length; i < (pos + exp); i += 1)
+                {
+                    buf[i] = '0';
+                }
+                return pos + exp;
+            }
+            writeDigits(buf, pos + length + 1, f);
+            System.arraycopy(buf, pos + 1, buf, pos, exp);
+            buf[pos + exp] = '.';
+            return pos + length + 1;
+        }
+        if ((exp > - 3) && (exp <= 0))
+        {
+            buf[pos] = '0';
+            buf[pos + 1] = '.';
+            for (int i = 0; i < - exp; i += 1)
+            {
+                buf[pos + 2 + i] = '0';
+            }
+            int end = pos + 2 - exp + length;
+            writeDigits(buf, end, f);
+            return end;
+        }
+        writeDigits(buf, pos + length + 1, f);
+        buf[pos] = buf[pos + 1];
+        buf[pos + 1] = '.';
+        int end = pos + length + 1;
+        if (length == 1)
+        {
+            buf[end] = '0';
+            end += 1;
+        }
+        buf[end] = 'E';
+        end += 1;
+        int sciExp = exp - 1;
+        if (sciExp < 0)
+        {
+            buf[end] = '-';
+            end += 1;
+            sciExp = - sciExp;
+        }
+        if (sciExp >= 100)
+        {
+            buf[end] = (char) ('0' + (sciExp / 100));
+            end += 1;
+        }
+        if (sciExp >= 10)
+        {
+            buf[end] = (char) ('0' + ((sciExp / 10) % 10));
+            end += 1;
+        }
+        buf[end] = (char) ('0' + (sciExp % 10));
+        return end + 1;
+    }
+
+    private static void writeDigits(char[] buf, int end, long f)
+    {
+        do
+        {
+            end -= 1;
+            buf[end] = (char) ('0' + (f % 10));
+            f /= 10;
+        }
+        while (f != 0);
+    }
+
+    private static int flog10pow2(int e)
+    {
+        return (int) ((e * 661971961083L) >> 41);
+    }
+
+    private static int flog10threeQuartersPow2(int e)
+    {
+        return (int) (((e * 661971961083L) - 274743187321L) >> 41);
+    }
+
+    private static int flog2pow10(int e)
+    {
+        return (int) ((e * 913124641741L) >> 38);
+    }
+
+    static long multiplyHigh(long x, long y)
+    {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = (x1 * y2) + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        return (x1 * y1) + z0 + (z1 >> 32);
+    }
+}
\ No newline at end of file
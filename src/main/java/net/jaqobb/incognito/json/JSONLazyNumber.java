@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public final class JSONLazyNumber extends Number
+{
+    private static final long serialVersionUID = 1L;
+
+    private final String text;
+    private       Number value;
+
+    public JSONLazyNumber(String text) throws JSONException
+    {
+        if (! JSONNumbers.isNumberLiteral(text))
+        {
+            throw new JSONException("Value[" + text + "] is not a valid number literal.");
+        }
+        this.text = text;
+    }
+
+    public Number getValue()
+    {
+        Number value = this.value;
+        if (value == null)
+        {
+            Object number = JSONNumbers.toValue(this.text, 0, this.text.length());
+            if (number != null)
+            {
+                value = (Number) number;
+            }
+            else if (JSONObject.isDecimalNotation(this.text))
+            {
+                value = new BigDecimal(this.text);
+            }
+            else
+            {
+                value = new BigInteger(this.text);
+            }
+            this.value = value;
+        }
+        return value;
+    }
+
+    // The primitive accessors read integer literals straight from the text, so lookups such as
+    // optInt and optLong never materialize a boxed value. Integer, Long and BigInteger all keep the
+    // low-order bits, which is exactly what JSONNumbers.toLong returns. Decimal literals still go
+    // through getValue() because Double narrows by saturating instead.
+    @Override
+    public int intValue()
+    {
+        Number value = this.value;
+        if ((value == null) && ! JSONObject.isDecimalNotation(this.text))
+        {
+            return (int) JSONNumbers.toLong(this.text, 0L);
+        }
+        return this.getValue().intValue();
+    }
+
+    @Override
+    public long longValue()
+    {
+        Number value = this.value;
+        if ((value == null) && ! JSONObject.isDecimalNotation(this.text))
+        {
+            return JSONNumbers.toLong(this.text, 0L);
+        }
+        return this.getValue().longValue();
+    }
+
+    @Override
+    public float floatValue()
+    {
+        return this.getValue().floatValue();
+    }
+
+    // Every representation getValue() can pick rounds to the nearest double, so parsing the text
+    // gives the same result without boxing.
+    @Override
+    public double doubleValue()
+    {
+        Number value = this.value;
+        return (value != null) ? value.doubleValue() : Double.parseDouble(this.text);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        return (obj instanceof JSONLazyNumber) && this.getValue().equals(((JSONLazyNumber) obj).getValue());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.getValue().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.text;
+    }
+}
\ No newline at end of file
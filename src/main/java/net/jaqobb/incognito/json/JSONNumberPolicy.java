@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.json;
+
+import java.math.BigDecimal;
+
+public enum JSONNumberPolicy
+{
+    DEFAULT
+    {
+        @Override
+        Object toValue(CharSequence text, int start, int end)
+        {
+            return JSONNumbers.toValue(text, start, end);
+        }
+
+        @Override
+        Number coerce(Number number)
+        {
+            return number;
+        }
+    },
+    LONG_OR_DOUBLE
+    {
+        @Override
+        Object toValue(CharSequence text, int start, int end)
+        {
+            Object number = JSONNumbers.toValue(text, start, end);
+            if (number instanceof Integer)
+            {
+                return ((Integer) number).longValue();
+            }
+            if (number != null)
+            {
+                return number;
+            }
+            String str = text.subSequence(start, end).toString();
+            if (! JSONNumbers.isNumberLiteral(str))
+            {
+                return null;
+            }
+            double val = Double.parseDouble(str);
+            return Double.isInfinite(val) ? null : val;
+        }
+
+        @Override
+        Number coerce(Number number)
+        {
+            return (number instanceof Integer) ? (Number) number.longValue() : number;
+        }
+    },
+    BIG_DECIMAL
+    {
+        @Override
+        Object toValue(CharSequence text, int start, int end)
+        {
+            String str = text.subSequence(start, end).toString();
+            return JSONNumbers.isNumberLiteral(str) ? new BigDecimal(str) : null;
+        }
+
+        @Override
+        Number coerce(Number number)
+        {
+            return (number instanceof Double) ? BigDecimal.valueOf(number.doubleValue()) : BigDecimal.valueOf(number.longValue());
+        }
+    },
+    LAZY
+    {
+        @Override
+        Object toValue(CharSequence text, int start, int end)
+        {
+            String str = text.subSequence(start, end).toString();
+            return JSONNumbers.isNumberLiteral(str) ? new JSONLazyNumber(str) : null;
+        }
+
+        @Override
+        Number coerce(Number number)
+        {
+            return new JSONLazyNumber(number.toString());
+        }
+    };
+
+    abstract Object toValue(CharSequence text, int start, int end);
+
+    // Converts one of the Integer, Long or Double values JSONObject.stringToValue produces for
+    // lenient numeric forms such as "1.5f" into this policy's representation.
+    abstract Number coerce(Number number);
+
+    Object stringToValue(String str)
+    {
+        Object val = JSONObject.stringToValue(str);
+        return (val instanceof Number) ? this.coerce((Number) val) : val;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,455 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.json;
+
+import java.math.BigInteger;
+
+final class JSONNumbers
+{
+    private static final int SMALLEST_POWER_OF_TEN = - 342;
+    private static final int LARGEST_POWER_OF_TEN  = 308;
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private static final class PowersOfFive
+    {
+        private static final long[] TABLE = new long[(LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1) << 1];
+
+        static
+        {
+            BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+            for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; q += 1)
+            {
+                BigInteger power = BigInteger.valueOf(5).pow(Math.abs(q));
+                BigInteger val;
+                if (q >= 0)
+                {
+                    int shift = power.bitLength() - 128;
+                    val = (shift >= 0) ? power.shiftRight(shift) : power.shiftLeft(- shift);
+                }
+                else
+                {
+                    int z = power.bitLength();
+                    int b = (q >= - 27) ? (z + 127) : ((2 * z) + 256);
+                    val = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+                    if (val.bitLength() > 128)
+                    {
+                        val = val.shiftRight(val.bitLength() - 128);
+                    }
+                }
+                int index = (q - SMALLEST_POWER_OF_TEN) << 1;
+                TABLE[index] = val.shiftRight(64).longValue();
+                TABLE[index + 1] = val.and(mask).longValue();
+            }
+        }
+    }
+
+    private JSONNumbers()
+    {
+    }
+
+    static boolean isNumber(String str)
+    {
+        if (str.isEmpty())
+        {
+            return false;
+        }
+        char initial = str.charAt(0);
+        return (((initial >= '0') && (initial <= '9')) || (initial == '-')) && isDecimal(str);
+    }
+
+    static boolean isNumberLiteral(String str)
+    {
+        if (! isNumber(str))
+        {
+            return false;
+        }
+        if (JSONObject.isDecimalNotation(str))
+        {
+            return true;
+        }
+        int pos = (str.charAt(0) == '-') ? 1 : 0;
+        return (str.charAt(pos) != '0') || (str.length() == (pos + 1));
+    }
+
+    static boolean isDecimal(String str)
+    {
+        int length = str.length();
+        int pos = 0;
+        if ((pos < length) && ((str.charAt(pos) == '+') || (str.charAt(pos) == '-')))
+        {
+            pos += 1;
+        }
+        pos = scanSignificand(str, pos, length);
+        if ((pos >= 0) && (pos < length) && ((str.charAt(pos) == 'e') || (str.charAt(pos) == 'E')))
+        {
+            pos = scanExponent(str, pos + 1, length, true);
+        }
+        return pos == length;
+    }
+
+    static boolean isDouble(String str)
+    {
+        int start = 0;
+        int end = str.length();
+        while ((start < end) && (str.charAt(start) <= ' '))
+        {
+            start += 1;
+        }
+        while ((end > start) && (str.charAt(end - 1) <= ' '))
+        {
+            end -= 1;
+        }
+        if ((start < end) && ((str.charAt(start) == '+') || (str.charAt(start) == '-')))
+        {
+            start += 1;
+        }
+        if (matches(str, start, end, "NaN") || matches(str, start, end, "Infinity"))
+        {
+            return true;
+        }
+        int pos = scanSignificand(str, start, end);
+        if ((pos >= 0) && (pos < end) && ((str.charAt(pos) == 'e') || (str.charAt(pos) == 'E')))
+        {
+            pos = scanExponent(str, pos + 1, end, false);
+        }
+        if ((pos >= 0) && (pos < end) && ("fFdD".indexOf(str.charAt(pos)) >= 0))
+        {
+            pos += 1;
+        }
+        return pos == end;
+    }
+
+    static Object toValue(CharSequence str, int start, int end)
+    {
+        int pos = start;
+        boolean negative = (pos < end) && (str.charAt(pos) == '-');
+        if (negative)
+        {
+            pos += 1;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        int digits = pos;
+        char ch;
+        while ((pos < end) && isDigit(ch = str.charAt(pos)))
+        {
+            if ((significant > 0) || (ch != '0'))
+            {
+                mantissa = (mantissa * 10) + (ch - '0');
+                significant += 1;
+            }
+            pos += 1;
+        }
+        int integerDigits = pos - digits;
+        if (integerDigits == 0)
+        {
+            return null;
+        }
+        boolean decimal = negative && (integerDigits == 1) && (mantissa == 0) && (pos == end);
+        if ((pos < end) && (str.charAt(pos) == '.'))
+        {
+            decimal = true;
+            pos += 1;
+            digits = pos;
+            while ((pos < end) && isDigit(ch = str.charAt(pos)))
+            {
+                if ((significant > 0) || (ch != '0'))
+                {
+                    mantissa = (mantissa * 10) + (ch - '0');
+                    significant += 1;
+                }
+                exponent -= 1;
+                pos += 1;
+            }
+            if (pos == digits)
+            {
+                return null;
+            }
+        }
+        if ((pos < end) && ((str.charAt(pos) == 'e') || (str.charAt(pos) == 'E')))
+        {
+            decimal = true;
+            pos += 1;
+            boolean negativeExponent = (pos < end) && (str.charAt(pos) == '-');
+            if ((pos < end) && ((str.charAt(pos) == '+') || (str.charAt(pos) == '-')))
+            {
+                pos += 1;
+            }
+            digits = pos;
+            int exp = 0;
+            while ((pos < end) && isDigit(ch = str.charAt(pos)))
+            {
+                if (exp < 100000)
+                {
+                    exp = (exp * 10) + (ch - '0');
+                }
+                pos += 1;
+            }
+            if (pos == digits)
+            {
+                return null;
+            }
+            exponent += negativeExponent ? - exp : exp;
+        }
+        if ((pos != end) || (significant > 19))
+        {
+            return null;
+        }
+        if (! decimal)
+        {
+            if ((integerDigits > 1) && (str.charAt(negative ? (start + 1) : start) == '0'))
+            {
+                return null;
+            }
+            if (mantissa < 0)
+            {
+                return (negative && (mantissa == Long.MIN_VALUE)) ? (Object) Long.MIN_VALUE : null;
+            }
+            long val = negative ? - mantissa : mantissa;
+            return (val == (int) val) ? (Object) (int) val : (Object) val;
+        }
+        double val = toDouble(negative, mantissa, exponent);
+        return (Double.isNaN(val) || Double.isInfinite(val)) ? null : (Object) val;
+    }
+
+    static double toDouble(boolean negative, long mantissa, int exponent)
+    {
+        if (mantissa == 0)
+        {
+            return negative ? - 0.0d : 0.0d;
+        }
+        if ((exponent >= - 22) && (exponent <= 22) && (mantissa > 0) && (mantissa <= (1L << 53)))
+        {
+            double val = (exponent < 0) ? (mantissa / POWERS_OF_TEN[- exponent]) : (mantissa * POWERS_OF_TEN[exponent]);
+            return negative ? - val : val;
+        }
+        long bits = eiselLemire(mantissa, exponent);
+        if (bits < 0)
+        {
+            return Double.NaN;
+        }
+        double val = Double.longBitsToDouble(bits);
+        return negative ? - val : val;
+    }
+
+    private static long eiselLemire(long w, int q)
+    {
+        if (q < SMALLEST_POWER_OF_TEN)
+        {
+            return 0L;
+        }
+        if (q > LARGEST_POWER_OF_TEN)
+        {
+            return 0x7FF0000000000000L;
+        }
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+        long[] table = PowersOfFive.TABLE;
+        int index = (q - SMALLEST_POWER_OF_TEN) << 1;
+        long high = unsignedMultiplyHigh(w, table[index]);
+        long low = w * table[index];
+        if ((high & 0x1FFL) == 0x1FFL)
+        {
+            long secondHigh = unsignedMultiplyHigh(w, table[index + 1]);
+            low += secondHigh;
+            if (Long.compareUnsigned(secondHigh, low) > 0)
+            {
+                high += 1;
+            }
+        }
+        if ((low == - 1L) && ((q < - 27) || (q > 55)))
+        {
+            return - 1L;
+        }
+        int upperBit = (int) (high >>> 63);
+        long mantissa = high >>> (upperBit + 9);
+        int power2 = (((217706 * q) >> 16) + 63) + upperBit - lz + 1023;
+        if (power2 <= 0)
+        {
+            if ((- power2 + 1) >= 64)
+            {
+                return 0L;
+            }
+            mantissa >>>= - power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power2 = (mantissa < (1L << 52)) ? 0 : 1;
+            return mantissa | ((long) power2 << 52);
+        }
+        if ((Long.compareUnsigned(low, 1L) <= 0) && (q >= - 4) && (q <= 23) && ((mantissa & 3) == 1))
+        {
+            if ((mantissa << (upperBit + 9)) == high)
+            {
+                mantissa &= ~ 1L;
+            }
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << 52))
+        {
+            mantissa = 1L << 52;
+            power2 += 1;
+        }
+        mantissa &= ~ (1L << 52);
+        if (power2 >= 0x7FF)
+        {
+            return 0x7FF0000000000000L;
+        }
+        return mantissa | ((long) power2 << 52);
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y)
+    {
+        return JSONFloatingDecimal.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    static long toLong(String str, long defaultValue)
+    {
+        if (! isDecimal(str))
+        {
+            return defaultValue;
+        }
+        int length = str.length();
+        int pos = 0;
+        boolean negative = false;
+        if ((str.charAt(0) == '+') || (str.charAt(0) == '-'))
+        {
+            negative = str.charAt(0) == '-';
+            pos = 1;
+        }
+        int end = pos;
+        int point = - 1;
+        while ((end < length) && (str.charAt(end) != 'e') && (str.charAt(end) != 'E'))
+        {
+            if (str.charAt(end) == '.')
+            {
+                point = end;
+            }
+            end += 1;
+        }
+        long exponent = 0;
+        if (end < length)
+        {
+            int exp = end + 1;
+            boolean negativeExponent = str.charAt(exp) == '-';
+            if ((str.charAt(exp) == '+') || (str.charAt(exp) == '-'))
+            {
+                exp += 1;
+            }
+            for (; exp < length; exp += 1)
+            {
+                exponent = (exponent * 10) + (str.charAt(exp) - '0');
+            }
+            if (negativeExponent)
+            {
+                exponent = - exponent;
+            }
+        }
+        long integerDigits = ((point < 0) ? (end - pos) : (point - pos)) + exponent;
+        long val = 0;
+        long taken = 0;
+        for (int i = pos; (i < end) && (taken < integerDigits); i += 1)
+        {
+            char ch = str.charAt(i);
+            if (ch != '.')
+            {
+                val = (val * 10) + (ch - '0');
+                taken += 1;
+            }
+        }
+        for (long i = taken; (i < integerDigits) && (i < (taken + 64)); i += 1)
+        {
+            val *= 10;
+        }
+        return negative ? - val : val;
+    }
+
+    static int toInt(String str, int defaultValue)
+    {
+        return isDecimal(str) ? (int) toLong(str, 0L) : defaultValue;
+    }
+
+    static double toDouble(String str, double defaultValue)
+    {
+        return isDouble(str) ? Double.parseDouble(str) : defaultValue;
+    }
+
+    static float toFloat(String str, float defaultValue)
+    {
+        return isDouble(str) ? Float.parseFloat(str) : defaultValue;
+    }
+
+    private static boolean matches(String str, int start, int end, String literal)
+    {
+        return ((end - start) == literal.length()) && str.startsWith(literal, start);
+    }
+
+    private static int scanSignificand(String str, int pos, int end)
+    {
+        int digits = 0;
+        while ((pos < end) && isDigit(str.charAt(pos)))
+        {
+            pos += 1;
+            digits += 1;
+        }
+        if ((pos < end) && (str.charAt(pos) == '.'))
+        {
+            pos += 1;
+            while ((pos < end) && isDigit(str.charAt(pos)))
+            {
+                pos += 1;
+                digits += 1;
+            }
+        }
+        return (digits == 0) ? - 1 : pos;
+    }
+
+    private static int scanExponent(String str, int pos, int end, boolean bounded)
+    {
+        if ((pos < end) && ((str.charAt(pos) == '+') || (str.charAt(pos) == '-')))
+        {
+            pos += 1;
+        }
+        int start = pos;
+        int significant = 0;
+        while ((pos < end) && isDigit(str.charAt(pos)))
+        {
+            if ((significant > 0) || (str.charAt(pos) != '0'))
+            {
+                significant += 1;
+            }
+            pos += 1;
+        }
+        return ((pos == start) || (bounded && (significant > 9))) ? - 1 : pos;
+    }
+
+    private static boolean isDigit(char ch)
+    {
+        return (ch >= '0') && (ch <= '9');
+    }
+}
\ No newline at end of file
@@ -34,6 +34,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -43,6 +44,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 @SuppressWarnings("MagicNumber")
 public class JSONObject
@@ -78,6 +80,9 @@ public class JSONObject
 
     private final Map<String, Object> map;
 
+    private volatile JSONStructure.Hash structuralHash;
+    private volatile int                structuralVersion;
+
     public static final Object NULL = new Null();
 
     public JSONObject()
@@ -136,7 +141,7 @@ public class JSONObject
                 Object val = tokener.nextValue();
                 if (val != null)
                 {
-                    this.put(key, val);
+                    this.putParsed(key, val);
                 }
             }
             switch (tokener.nextClean())
@@ -201,7 +206,18 @@ public class JSONObject
 
     public JSONObject(String src) throws JSONException
     {
-        this(new JSONTokener(src));
+        this(new JSONTokener(src), src.length(), JSON.startTiming());
+    }
+
+    public JSONObject(String src, JSONNumberPolicy numberPolicy) throws JSONException
+    {
+        this(new JSONTokener(src, numberPolicy), src.length(), JSON.startTiming());
+    }
+
+    private JSONObject(JSONTokener tokener, int length, long start) throws JSONException
+    {
+        this(tokener);
+        JSON.parsed(start, length);
     }
 
     public JSONObject(String baseName, Locale locale) throws JSONException
@@ -238,6 +254,11 @@ public class JSONObject
         this.map = new HashMap<>(initialCapacity);
     }
 
+    JSONObject(ConcurrentMap<String, Object> map)
+    {
+        this.map = map;
+    }
+
     public JSONObject accumulate(String key, Object val) throws JSONException
     {
         testValidity(val);
@@ -282,19 +303,7 @@ public class JSONObject
         {
             return "null";
         }
-        String str = Double.toString(val);
-        if ((str.indexOf('.') > 0) && (str.indexOf('e') < 0) && (str.indexOf('E') < 0))
-        {
-            while (str.endsWith("0"))
-            {
-                str = str.substring(0, str.length() - 1);
-            }
-            if (str.endsWith("."))
-            {
-                str = str.substring(0, str.length() - 1);
-            }
-        }
-        return str;
+        return JSONFloatingDecimal.toString(val);
     }
 
     public Object get(String key) throws JSONException
@@ -502,40 +511,45 @@ public class JSONObject
 
     public JSONObject increment(String key) throws JSONException
     {
-        Object val = this.opt(key);
+        this.put(key, incremented(key, this.opt(key)));
+        return this;
+    }
+
+    static Object incremented(String key, Object val) throws JSONException
+    {
         if (val == null)
         {
-            this.put(key, 1);
+            return 1;
         }
-        else if (val instanceof BigInteger)
+        if (val instanceof JSONLazyNumber)
         {
-            this.put(key, ((BigInteger) val).add(BigInteger.ONE));
+            val = ((JSONLazyNumber) val).getValue();
         }
-        else if (val instanceof BigDecimal)
+        if (val instanceof BigInteger)
         {
-            this.put(key, ((BigDecimal) val).add(BigDecimal.ONE));
+            return ((BigInteger) val).add(BigInteger.ONE);
         }
-        else if (val instanceof Integer)
+        if (val instanceof BigDecimal)
         {
-            this.put(key, (Integer) val + 1);
+            return ((BigDecimal) val).add(BigDecimal.ONE);
         }
-        else if (val instanceof Long)
+        if (val instanceof Integer)
         {
-            this.put(key, (Long) val + 1L);
+            return (Integer) val + 1;
         }
-        else if (val instanceof Double)
+        if (val instanceof Long)
         {
-            this.put(key, (Double) val + 1.0d);
+            return (Long) val + 1L;
         }
-        else if (val instanceof Float)
+        if (val instanceof Double)
         {
-            this.put(key, (Float) val + 1.0f);
+            return (Double) val + 1.0d;
         }
-        else
+        if (val instanceof Float)
         {
-            throw new JSONException("Unable to increment [" + quote(key) + "].");
+            return (Float) val + 1.0f;
         }
-        return this;
+        throw new JSONException("Unable to increment [" + quote(key) + "].");
     }
 
     public boolean isNull(String key)
@@ -550,7 +564,56 @@ public class JSONObject
 
     public Set<String> keySet()
     {
-        return this.map.keySet();
+        Set<String> keys = this.map.keySet();
+        return new AbstractSet<String>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                Iterator<String> iterator = keys.iterator();
+                return new Iterator<String>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public String next()
+                    {
+                        return iterator.next();
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        iterator.remove();
+                        JSONStructure.touch(JSONObject.this);
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return keys.size();
+            }
+
+            @Override
+            public boolean contains(Object obj)
+            {
+                return keys.contains(obj);
+            }
+
+            @Override
+            public boolean remove(Object obj)
+            {
+                boolean removed = keys.remove(obj);
+                JSONStructure.touch(JSONObject.this);
+                return removed;
+            }
+        };
     }
 
     protected Set<Entry<String, Object>> entrySet()
@@ -579,6 +642,14 @@ public class JSONObject
             throw new JSONException("Null number.");
         }
         testValidity(number);
+        if (number instanceof Double)
+        {
+            return JSONFloatingDecimal.toString((double) (Double) number);
+        }
+        if (number instanceof Float)
+        {
+            return JSONFloatingDecimal.toString((float) (Float) number);
+        }
         String str = number.toString();
         if ((str.indexOf('.') > 0) && (str.indexOf('e') < 0) && (str.indexOf('E') < 0))
         {
@@ -642,14 +713,18 @@ public class JSONObject
         {
             return (Boolean) val;
         }
-        try
-        {
-            return this.getBoolean(key);
-        }
-        catch (Exception ex)
+        if (val instanceof String)
         {
-            return defaultValue;
+            if (((String) val).equalsIgnoreCase("true"))
+            {
+                return true;
+            }
+            if (((String) val).equalsIgnoreCase("false"))
+            {
+                return false;
+            }
         }
+        return defaultValue;
     }
 
     public BigDecimal optBigDecimal(String key, BigDecimal defaultValue)
@@ -675,14 +750,8 @@ public class JSONObject
         {
             return new BigDecimal(((Number) val).longValue());
         }
-        try
-        {
-            return new BigDecimal(val.toString());
-        }
-        catch (Exception ex)
-        {
-            return defaultValue;
-        }
+        String valStr = val.toString();
+        return JSONNumbers.isDecimal(valStr) ? new BigDecimal(valStr) : defaultValue;
     }
 
     public BigInteger optBigInteger(String key, BigInteger defaultValue)
@@ -708,19 +777,16 @@ public class JSONObject
         {
             return BigInteger.valueOf(((Number) val).longValue());
         }
-        try
+        String valStr = val.toString();
+        if (! JSONNumbers.isDecimal(valStr))
         {
-            String valStr = val.toString();
-            if (isDecimalNotation(valStr))
-            {
-                return new BigDecimal(valStr).toBigInteger();
-            }
-            return new BigInteger(valStr);
+            return defaultValue;
         }
-        catch (Exception ex)
+        if (isDecimalNotation(valStr))
         {
-            return defaultValue;
+            return new BigDecimal(valStr).toBigInteger();
         }
+        return new BigInteger(valStr);
     }
 
     public double optDouble(String key)
@@ -741,14 +807,7 @@ public class JSONObject
         }
         if (val instanceof String)
         {
-            try
-            {
-                return Double.parseDouble((String) val);
-            }
-            catch (NumberFormatException ex)
-            {
-                return defaultValue;
-            }
+            return JSONNumbers.toDouble((String) val, defaultValue);
         }
         return defaultValue;
     }
@@ -771,14 +830,7 @@ public class JSONObject
         }
         if (val instanceof String)
         {
-            try
-            {
-                return Float.parseFloat((String) val);
-            }
-            catch (NumberFormatException ex)
-            {
-                return defaultValue;
-            }
+            return JSONNumbers.toFloat((String) val, defaultValue);
         }
         return defaultValue;
     }
@@ -799,17 +851,9 @@ public class JSONObject
         {
             return ((Number) val).intValue();
         }
-
         if (val instanceof String)
         {
-            try
-            {
-                return new BigDecimal((String) val).intValue();
-            }
-            catch (NumberFormatException ex)
-            {
-                return defaultValue;
-            }
+            return JSONNumbers.toInt((String) val, defaultValue);
         }
         return defaultValue;
     }
@@ -842,17 +886,9 @@ public class JSONObject
         {
             return ((Number) val).longValue();
         }
-
         if (val instanceof String)
         {
-            try
-            {
-                return new BigDecimal((String) val).longValue();
-            }
-            catch (NumberFormatException ex)
-            {
-                return defaultValue;
-            }
+            return JSONNumbers.toLong((String) val, defaultValue);
         }
         return defaultValue;
     }
@@ -873,17 +909,9 @@ public class JSONObject
         {
             return (Number) val;
         }
-
-        if (val instanceof String)
+        if ((val instanceof String) && JSONNumbers.isNumber((String) val))
         {
-            try
-            {
-                return stringToNumber((String) val);
-            }
-            catch (NumberFormatException ex)
-            {
-                return defaultValue;
-            }
+            return stringToNumber((String) val);
         }
         return defaultValue;
     }
@@ -1016,6 +1044,7 @@ public class JSONObject
         {
             testValidity(val);
             this.map.put(key, val);
+            JSONStructure.touch(this);
         }
         else
         {
@@ -1024,6 +1053,13 @@ public class JSONObject
         return this;
     }
 
+    // Parsers fill objects nobody else can see yet, so there is no cached hash to invalidate.
+    void putParsed(String key, Object val) throws JSONException
+    {
+        testValidity(val);
+        this.map.put(key, val);
+    }
+
     public JSONObject putOnce(String key, Object val) throws JSONException
     {
         if ((key != null) && (val != null))
@@ -1154,59 +1190,45 @@ public class JSONObject
 
     public Object remove(String key)
     {
-        return this.map.remove(key);
+        Object removed = this.map.remove(key);
+        JSONStructure.touch(this);
+        return removed;
     }
 
     public boolean similar(Object other)
     {
-        try
-        {
-            if (! (other instanceof JSONObject))
-            {
-                return false;
-            }
-            if (! this.keySet().equals(((JSONObject) other).keySet()))
-            {
-                return false;
-            }
-            for (Entry<String, ?> entry : this.entrySet())
-            {
-                String name = entry.getKey();
-                Object valueThis = entry.getValue();
-                Object valueOther = ((JSONObject) other).get(name);
-                if (valueThis == null)
-                {
-                    return false;
-                }
-                if (valueThis.equals(valueOther))
-                {
-                    return true;
-                }
-                if (valueThis instanceof JSONObject)
-                {
-                    if (! ((JSONObject) valueThis).similar(valueOther))
-                    {
-                        return false;
-                    }
-                }
-                else if (valueThis instanceof JSONArray)
-                {
-                    if (! ((JSONArray) valueThis).isSimilar(valueOther))
-                    {
-                        return false;
-                    }
-                }
-                else if (! valueThis.equals(valueOther))
-                {
-                    return false;
-                }
-            }
-            return true;
-        }
-        catch (Throwable ex)
+        return (other instanceof JSONObject) && JSONStructure.similar(this, other);
+    }
+
+    public int structuralHashCode()
+    {
+        return JSONStructure.hash(this);
+    }
+
+    JSONStructure.Hash getStructuralHash()
+    {
+        return this.structuralHash;
+    }
+
+    void setStructuralHash(JSONStructure.Hash hash)
+    {
+        this.structuralHash = hash;
+    }
+
+    int getStructuralVersion()
+    {
+        return this.structuralVersion;
+    }
+
+    JSONStructure.Hash invalidateStructuralHash()
+    {
+        this.structuralVersion += 1;
+        JSONStructure.Hash hash = this.structuralHash;
+        if (hash != null)
         {
-            return false;
+            this.structuralHash = null;
         }
+        return hash;
     }
 
     protected static boolean isDecimalNotation(String val)
@@ -1267,31 +1289,18 @@ public class JSONObject
         char initial = str.charAt(0);
         if (((initial >= '0') && (initial <= '9')) || (initial == '-'))
         {
-            try
+            Object number = JSONNumbers.toValue(str, 0, str.length());
+            if (number != null)
             {
-                if (isDecimalNotation(str))
-                {
-                    Double val = Double.valueOf(str);
-                    if (! val.isInfinite() && ! val.isNaN())
-                    {
-                        return val;
-                    }
-                }
-                else
-                {
-                    Long val = Long.valueOf(str);
-                    if (str.equals(val.toString()))
-                    {
-                        if (val == val.intValue())
-                        {
-                            return val.intValue();
-                        }
-                        return val;
-                    }
-                }
+                return number;
             }
-            catch (Exception ignored)
+            if (isDecimalNotation(str) && JSONNumbers.isDouble(str))
             {
+                Double val = Double.valueOf(str);
+                if (! val.isInfinite() && ! val.isNaN())
+                {
+                    return val;
+                }
             }
         }
         return str;
@@ -1348,11 +1357,14 @@ public class JSONObject
 
     public String toString(int indentFactor) throws JSONException
     {
+        long start = JSON.startTiming();
         try (StringWriter writer = new StringWriter())
         {
             synchronized (writer.getBuffer())
             {
-                return this.write(writer, indentFactor, 0).toString();
+                String str = this.write(writer, indentFactor, 0).toString();
+                JSON.serialized(start, str.length());
+                return str;
             }
         }
         catch (IOException ex)
@@ -1363,7 +1375,7 @@ public class JSONObject
 
     public static String valueToString(Object val) throws JSONException
     {
-        if (val == null)
+        if ((val == null) || NULL.equals(val))
         {
             return "null";
         }
@@ -1396,7 +1408,7 @@ public class JSONObject
                 return quote(numberAsString);
             }
         }
-        if ((val instanceof Boolean) || (val instanceof JSONObject) || (val instanceof JSONArray))
+        if ((val instanceof Boolean) || (val instanceof JSONObject) || (val instanceof JSONArray) || (val instanceof ImmutableJSONObject) || (val instanceof ImmutableJSONArray))
         {
             return val.toString();
         }
@@ -1429,10 +1441,10 @@ public class JSONObject
             {
                 return NULL;
             }
-            if ((obj instanceof JSONObject) || (obj instanceof JSONArray) || NULL.equals(obj) || (obj instanceof JSONString) || (obj instanceof Byte) ||
-                (obj instanceof Character) || (obj instanceof Short) || (obj instanceof Integer) || (obj instanceof Long) || (obj instanceof Boolean) ||
-                (obj instanceof Float) || (obj instanceof Double) || (obj instanceof String) || (obj instanceof BigInteger) || (obj instanceof BigDecimal) ||
-                (obj instanceof Enum))
+            if ((obj instanceof JSONObject) || (obj instanceof JSONArray) || (obj instanceof ImmutableJSONObject) || (obj instanceof ImmutableJSONArray) || NULL.equals(obj) ||
+                (obj instanceof JSONString) || (obj instanceof Byte) || (obj instanceof Character) || (obj instanceof Short) || (obj instanceof Integer) ||
+                (obj instanceof Long) || (obj instanceof Boolean) || (obj instanceof Float) || (obj instanceof Double) || (obj instanceof String) ||
+                (obj instanceof BigInteger) || (obj instanceof BigDecimal) || (obj instanceof JSONLazyNumber) || (obj instanceof Enum))
             {
                 return obj;
             }
@@ -1471,7 +1483,7 @@ public class JSONObject
 
     static Writer writeValue(Writer writer, Object val, int indentFactor, int indent) throws JSONException, IOException
     {
-        if (val == null)
+        if ((val == null) || NULL.equals(val))
         {
             writer.write("null");
         }
@@ -1488,6 +1500,13 @@ public class JSONObject
             }
             writer.write((obj != null) ? obj.toString() : quote(val.toString()));
         }
+        else if ((val instanceof Double) || (val instanceof Float))
+        {
+            testValidity(val);
+            char[] buf = new char[JSONFloatingDecimal.MAX_CHARS];
+            int length = (val instanceof Double) ? JSONFloatingDecimal.format((double) (Double) val, buf) : JSONFloatingDecimal.format((float) (Float) val, buf);
+            writer.write(buf, 0, length);
+        }
         else if (val instanceof Number)
         {
             String numberAsString = numberToString((Number) val);
@@ -1516,6 +1535,14 @@ public class JSONObject
         {
             ((JSONArray) val).write(writer, indentFactor, indent);
         }
+        else if (val instanceof ImmutableJSONObject)
+        {
+            ((ImmutableJSONObject) val).write(writer, indentFactor, indent);
+        }
+        else if (val instanceof ImmutableJSONArray)
+        {
+            ((ImmutableJSONArray) val).write(writer, indentFactor, indent);
+        }
         else if (val instanceof Map)
         {
             Map<?, ?> map = (Map<?, ?>) val;
@@ -1617,6 +1644,11 @@ public class JSONObject
         }
     }
 
+    public Map<String, Object> asMap()
+    {
+        return new JSONViews.MapView(this);
+    }
+
     public Map<String, Object> toMap()
     {
         Map<String, Object> results = new HashMap<>(16);
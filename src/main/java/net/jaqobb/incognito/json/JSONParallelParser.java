@@ -0,0 +1,247 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.json;
+
+import java.io.CharArrayReader;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+final class JSONParallelParser
+{
+    private static final int MIN_PARALLEL_LENGTH = 1 << 16;
+    private static final int LEAF_LENGTH         = 1 << 14;
+
+    private final char[]           chars;
+    private final JSONNumberPolicy numberPolicy;
+    private       int[]            starts = new int[64];
+    private       int[]            ends   = new int[64];
+    private       int              count;
+    private       Object[]         values;
+
+    private JSONParallelParser(char[] chars, JSONNumberPolicy numberPolicy)
+    {
+        this.chars = chars;
+        this.numberPolicy = numberPolicy;
+    }
+
+    static Object[] parse(char[] chars, JSONNumberPolicy numberPolicy)
+    {
+        if ((chars.length < MIN_PARALLEL_LENGTH) || (ForkJoinPool.getCommonPoolParallelism() < 2))
+        {
+            return null;
+        }
+        JSONParallelParser parser = new JSONParallelParser(chars, numberPolicy);
+        if (! parser.scan())
+        {
+            return null;
+        }
+        try
+        {
+            parser.values = new Object[parser.count];
+            ForkJoinPool.commonPool().invoke(parser.new ParseTask(0, parser.count));
+            return parser.values;
+        }
+        catch (RuntimeException ex)
+        {
+            return null;
+        }
+    }
+
+    private boolean scan()
+    {
+        char[] chars = this.chars;
+        int pos = 0;
+        while ((pos < chars.length) && (chars[pos] <= ' '))
+        {
+            pos += 1;
+        }
+        if ((pos == chars.length) || (chars[pos] != '['))
+        {
+            return false;
+        }
+        int depth = 0;
+        int start = pos + 1;
+        boolean expectValue = true;
+        for (int i = start; i < chars.length; i += 1)
+        {
+            char ch = chars[i];
+            if (ch <= ' ')
+            {
+                continue;
+            }
+            switch (ch)
+            {
+                case '"':
+                case '\'':
+                    if (! expectValue)
+                    {
+                        break;
+                    }
+                    i = this.skipString(i, ch);
+                    if (i < 0)
+                    {
+                        return false;
+                    }
+                    expectValue = false;
+                    break;
+                case '[':
+                case '{':
+                    depth += 1;
+                    expectValue = true;
+                    break;
+                case ']':
+                case '}':
+                    if (depth > 0)
+                    {
+                        depth -= 1;
+                        expectValue = false;
+                        break;
+                    }
+                    if (ch != ']')
+                    {
+                        return false;
+                    }
+                    if (! this.isBlank(start, i) || (this.count > 0))
+                    {
+                        this.add(start, i);
+                    }
+                    if ((this.count > 0) && this.isBlank(this.starts[this.count - 1], this.ends[this.count - 1]))
+                    {
+                        this.count -= 1;
+                    }
+                    return true;
+                case ',':
+                    if (depth == 0)
+                    {
+                        this.add(start, i);
+                        start = i + 1;
+                    }
+                    expectValue = true;
+                    break;
+                case ':':
+                    expectValue = true;
+                    break;
+                default:
+                    expectValue = false;
+            }
+        }
+        return false;
+    }
+
+    private int skipString(int pos, char quote)
+    {
+        char[] chars = this.chars;
+        for (int i = pos + 1; i < chars.length; i += 1)
+        {
+            char ch = chars[i];
+            if (ch == '\\')
+            {
+                i += 1;
+            }
+            else if (ch == quote)
+            {
+                return i;
+            }
+            else if ((ch == '\n') || (ch == '\r'))
+            {
+                return - 1;
+            }
+        }
+        return - 1;
+    }
+
+    private boolean isBlank(int start, int end)
+    {
+        for (int i = start; i < end; i += 1)
+        {
+            if (this.chars[i] > ' ')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(int start, int end)
+    {
+        if (this.count == this.starts.length)
+        {
+            this.starts = Arrays.copyOf(this.starts, this.count << 1);
+            this.ends = Arrays.copyOf(this.ends, this.count << 1);
+        }
+        this.starts[this.count] = start;
+        this.ends[this.count] = end;
+        this.count += 1;
+    }
+
+    private Object parseElement(int element) throws JSONException
+    {
+        int start = this.starts[element];
+        int end = this.ends[element];
+        if (this.isBlank(start, end))
+        {
+            return JSONObject.NULL;
+        }
+        JSONTokener tokener = new JSONTokener(new CharArrayReader(this.chars, start, end - start), this.numberPolicy);
+        Object val = tokener.nextValue();
+        if (tokener.nextClean() != 0)
+        {
+            throw tokener.syntaxError("Expected a ',' or ']'.");
+        }
+        return val;
+    }
+
+    private final class ParseTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        ParseTask(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            JSONParallelParser parser = JSONParallelParser.this;
+            if (((this.to - this.from) == 1) || ((parser.ends[this.to - 1] - parser.starts[this.from]) <= LEAF_LENGTH))
+            {
+                for (int i = this.from; i < this.to; i += 1)
+                {
+                    parser.values[i] = parser.parseElement(i);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new ParseTask(this.from, middle), new ParseTask(middle, this.to));
+        }
+    }
+}
\ No newline at end of file
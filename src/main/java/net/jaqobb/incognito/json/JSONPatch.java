@@ -0,0 +1,510 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+
+public class JSONPatch implements Iterable<JSONPatch.Operation>
+{
+    public enum Type
+    {
+        ADD,
+        REMOVE,
+        REPLACE,
+        MOVE,
+        COPY,
+        TEST;
+
+        public String getName()
+        {
+            return this.name().toLowerCase(Locale.ROOT);
+        }
+
+        public static Type fromName(String name) throws JSONException
+        {
+            for (Type type : values())
+            {
+                if (type.getName().equals(name))
+                {
+                    return type;
+                }
+            }
+            throw new JSONException("Unknown JSON patch operation " + JSONObject.quote(name) + ".");
+        }
+    }
+
+    public static class Operation
+    {
+        private final Type        type;
+        private final JSONPointer path;
+        private final JSONPointer from;
+        private final Object      value;
+
+        public Operation(Type type, JSONPointer path, JSONPointer from, Object value)
+        {
+            if ((type == null) || (path == null))
+            {
+                throw new NullPointerException("Null operation type or path.");
+            }
+            if (((type == Type.MOVE) || (type == Type.COPY)) && (from == null))
+            {
+                throw new JSONException("Operation " + type.getName() + " requires a 'from' location.");
+            }
+            if (((type == Type.ADD) || (type == Type.REPLACE) || (type == Type.TEST)) && (value == null))
+            {
+                throw new JSONException("Operation " + type.getName() + " requires a value.");
+            }
+            this.type = type;
+            this.path = path;
+            this.from = from;
+            this.value = value;
+        }
+
+        public Type getType()
+        {
+            return this.type;
+        }
+
+        public JSONPointer getPath()
+        {
+            return this.path;
+        }
+
+        public JSONPointer getFrom()
+        {
+            return this.from;
+        }
+
+        public Object getValue()
+        {
+            return this.value;
+        }
+
+        public JSONObject toJSONObject()
+        {
+            JSONObject obj = new JSONObject();
+            obj.put("op", this.type.getName());
+            obj.put("path", this.path.toString());
+            if (this.from != null)
+            {
+                obj.put("from", this.from.toString());
+            }
+            if (this.value != null)
+            {
+                obj.put("value", this.value);
+            }
+            return obj;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.toJSONObject().toString();
+        }
+    }
+
+    private final List<Operation> operations = new ArrayList<>(10);
+
+    public JSONPatch()
+    {
+    }
+
+    public JSONPatch(JSONArray array) throws JSONException
+    {
+        for (int i = 0; i < array.length(); i += 1)
+        {
+            JSONObject obj = array.getJSONObject(i);
+            String from = obj.optString("from", null);
+            this.operations.add(new Operation(Type.fromName(obj.getString("op")), new JSONPointer(obj.getString("path")), (from == null) ? null : new JSONPointer(from), obj.opt("value")));
+        }
+    }
+
+    public JSONPatch(String src) throws JSONException
+    {
+        this(new JSONArray(src));
+    }
+
+    public JSONPatch add(String path, Object value)
+    {
+        return this.append(new Operation(Type.ADD, new JSONPointer(path), null, value));
+    }
+
+    public JSONPatch remove(String path)
+    {
+        return this.append(new Operation(Type.REMOVE, new JSONPointer(path), null, null));
+    }
+
+    public JSONPatch replace(String path, Object value)
+    {
+        return this.append(new Operation(Type.REPLACE, new JSONPointer(path), null, value));
+    }
+
+    public JSONPatch move(String from, String path)
+    {
+        return this.append(new Operation(Type.MOVE, new JSONPointer(path), new JSONPointer(from), null));
+    }
+
+    public JSONPatch copy(String from, String path)
+    {
+        return this.append(new Operation(Type.COPY, new JSONPointer(path), new JSONPointer(from), null));
+    }
+
+    public JSONPatch test(String path, Object value)
+    {
+        return this.append(new Operation(Type.TEST, new JSONPointer(path), null, value));
+    }
+
+    public JSONPatch append(Operation operation)
+    {
+        if (operation == null)
+        {
+            throw new NullPointerException("Null operation.");
+        }
+        this.operations.add(operation);
+        return this;
+    }
+
+    public int size()
+    {
+        return this.operations.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return this.operations.isEmpty();
+    }
+
+    @Override
+    public Iterator<Operation> iterator()
+    {
+        return Collections.unmodifiableList(this.operations).iterator();
+    }
+
+    public static JSONPatch diff(Object source, Object target)
+    {
+        JSONPatch patch = new JSONPatch();
+        diff(patch, new ArrayList<>(10), source, target);
+        return patch;
+    }
+
+    private static void diff(JSONPatch patch, List<String> path, Object source, Object target)
+    {
+        if ((JSONStructure.hash(source) == JSONStructure.hash(target)) && JSONStructure.similar(source, target))
+        {
+            return;
+        }
+        if ((source instanceof JSONObject) && (target instanceof JSONObject))
+        {
+            JSONObject sourceObj = (JSONObject) source;
+            JSONObject targetObj = (JSONObject) target;
+            for (Entry<String, Object> entry : sourceObj.entrySet())
+            {
+                path.add(entry.getKey());
+                Object targetVal = targetObj.opt(entry.getKey());
+                if (targetVal == null)
+                {
+                    patch.operations.add(new Operation(Type.REMOVE, new JSONPointer(path), null, null));
+                }
+                else
+                {
+                    diff(patch, path, entry.getValue(), targetVal);
+                }
+                path.remove(path.size() - 1);
+            }
+            for (Entry<String, Object> entry : targetObj.entrySet())
+            {
+                if (! sourceObj.has(entry.getKey()))
+                {
+                    path.add(entry.getKey());
+                    patch.operations.add(new Operation(Type.ADD, new JSONPointer(path), null, entry.getValue()));
+                    path.remove(path.size() - 1);
+                }
+            }
+        }
+        else if ((source instanceof JSONArray) && (target instanceof JSONArray))
+        {
+            JSONArray sourceArray = (JSONArray) source;
+            JSONArray targetArray = (JSONArray) target;
+            int common = Math.min(sourceArray.length(), targetArray.length());
+            for (int i = 0; i < common; i += 1)
+            {
+                path.add(String.valueOf(i));
+                diff(patch, path, sourceArray.opt(i), targetArray.opt(i));
+                path.remove(path.size() - 1);
+            }
+            for (int i = sourceArray.length() - 1; i >= common; i -= 1)
+            {
+                path.add(String.valueOf(i));
+                patch.operations.add(new Operation(Type.REMOVE, new JSONPointer(path), null, null));
+                path.remove(path.size() - 1);
+            }
+            for (int i = common; i < targetArray.length(); i += 1)
+            {
+                path.add(String.valueOf(i));
+                patch.operations.add(new Operation(Type.ADD, new JSONPointer(path), null, targetArray.opt(i)));
+                path.remove(path.size() - 1);
+            }
+        }
+        else
+        {
+            patch.operations.add(new Operation(Type.REPLACE, new JSONPointer(path), null, (target == null) ? JSONObject.NULL : target));
+        }
+    }
+
+    // Applies the patch in place. Every change is journalled, and if any operation fails the
+    // journal is replayed backwards so the document is left exactly as it was (RFC 6902 section 5).
+    public Object apply(Object doc) throws JSONException
+    {
+        Deque<Runnable> undo = new ArrayDeque<>(this.operations.size());
+        try
+        {
+            for (Operation operation : this.operations)
+            {
+                switch (operation.type)
+                {
+                    case ADD:
+                        doc = add(doc, operation.path, JSONStructure.copy(operation.value), undo);
+                        break;
+                    case REMOVE:
+                        doc = remove(doc, operation.path, null, undo);
+                        break;
+                    case REPLACE:
+                        doc = replace(doc, operation.path, JSONStructure.copy(operation.value), undo);
+                        break;
+                    case MOVE:
+                        List<String> fromTokens = operation.from.getRefTokens();
+                        List<String> pathTokens = operation.path.getRefTokens();
+                        if ((pathTokens.size() > fromTokens.size()) && pathTokens.subList(0, fromTokens.size()).equals(fromTokens))
+                        {
+                            throw new JSONException("Cannot move " + operation.from + " into its own child " + operation.path + ".");
+                        }
+                        Object[] moved = new Object[1];
+                        doc = remove(doc, operation.from, moved, undo);
+                        doc = add(doc, operation.path, moved[0], undo);
+                        break;
+                    case COPY:
+                        doc = add(doc, operation.path, JSONStructure.copy(get(doc, operation.from)), undo);
+                        break;
+                    case TEST:
+                        if (! JSONStructure.similar(get(doc, operation.path), operation.value))
+                        {
+                            throw new JSONException("JSON patch test failed at " + operation.path + ".");
+                        }
+                        break;
+                    default:
+                        throw new JSONException("Unsupported JSON patch operation " + operation.type.getName() + ".");
+                }
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            while (! undo.isEmpty())
+            {
+                undo.pop().run();
+            }
+            throw ex;
+        }
+        return doc;
+    }
+
+    private static Object get(Object doc, JSONPointer pointer) throws JSONException
+    {
+        List<String> tokens = pointer.getRefTokens();
+        if (tokens.isEmpty())
+        {
+            return doc;
+        }
+        Object parent = parent(doc, pointer);
+        String token = tokens.get(tokens.size() - 1);
+        Object val = (parent instanceof JSONObject) ? ((JSONObject) parent).opt(token) : ((JSONArray) parent).opt(index(pointer, token, ((JSONArray) parent).length() - 1));
+        if (val == null)
+        {
+            throw new JSONPointerException("Path " + pointer + " does not exist.");
+        }
+        return val;
+    }
+
+    private static Object add(Object doc, JSONPointer pointer, Object val, Deque<Runnable> undo) throws JSONException
+    {
+        List<String> tokens = pointer.getRefTokens();
+        if (tokens.isEmpty())
+        {
+            return val;
+        }
+        Object parent = parent(doc, pointer);
+        String token = tokens.get(tokens.size() - 1);
+        if (parent instanceof JSONObject)
+        {
+            JSONObject obj = (JSONObject) parent;
+            Object previous = obj.opt(token);
+            obj.put(token, val);
+            undo.push(() -> obj.put(token, previous));
+        }
+        else
+        {
+            JSONArray array = (JSONArray) parent;
+            int index = "-".equals(token) ? array.length() : index(pointer, token, array.length());
+            array.insert(index, val);
+            undo.push(() -> array.remove(index));
+        }
+        return doc;
+    }
+
+    private static Object replace(Object doc, JSONPointer pointer, Object val, Deque<Runnable> undo) throws JSONException
+    {
+        List<String> tokens = pointer.getRefTokens();
+        if (tokens.isEmpty())
+        {
+            return val;
+        }
+        Object parent = parent(doc, pointer);
+        String token = tokens.get(tokens.size() - 1);
+        Object previous = get(doc, pointer);
+        if (parent instanceof JSONObject)
+        {
+            JSONObject obj = (JSONObject) parent;
+            obj.put(token, val);
+            undo.push(() -> obj.put(token, previous));
+        }
+        else
+        {
+            JSONArray array = (JSONArray) parent;
+            int index = index(pointer, token, array.length() - 1);
+            array.put(index, val);
+            undo.push(() -> array.put(index, previous));
+        }
+        return doc;
+    }
+
+    private static Object remove(Object doc, JSONPointer pointer, Object[] removed, Deque<Runnable> undo) throws JSONException
+    {
+        List<String> tokens = pointer.getRefTokens();
+        if (tokens.isEmpty())
+        {
+            if (removed != null)
+            {
+                removed[0] = doc;
+            }
+            return JSONObject.NULL;
+        }
+        Object parent = parent(doc, pointer);
+        String token = tokens.get(tokens.size() - 1);
+        Object val;
+        if (parent instanceof JSONObject)
+        {
+            JSONObject obj = (JSONObject) parent;
+            val = obj.remove(token);
+            if (val != null)
+            {
+                undo.push(() -> obj.put(token, val));
+            }
+        }
+        else
+        {
+            JSONArray array = (JSONArray) parent;
+            int index = index(pointer, token, array.length() - 1);
+            val = array.remove(index);
+            undo.push(() -> array.insert(index, val));
+        }
+        if (val == null)
+        {
+            throw new JSONPointerException("Path " + pointer + " does not exist.");
+        }
+        if (removed != null)
+        {
+            removed[0] = val;
+        }
+        return doc;
+    }
+
+    private static Object parent(Object doc, JSONPointer pointer) throws JSONException
+    {
+        List<String> tokens = pointer.getRefTokens();
+        Object curr = doc;
+        for (int i = 0; i < tokens.size() - 1; i += 1)
+        {
+            String token = tokens.get(i);
+            Object next = null;
+            if (curr instanceof JSONObject)
+            {
+                next = ((JSONObject) curr).opt(token);
+            }
+            else if (curr instanceof JSONArray)
+            {
+                next = ((JSONArray) curr).opt(index(pointer, token, ((JSONArray) curr).length() - 1));
+            }
+            if (next == null)
+            {
+                throw new JSONPointerException("Path " + pointer + " does not exist.");
+            }
+            curr = next;
+        }
+        if (! (curr instanceof JSONObject) && ! (curr instanceof JSONArray))
+        {
+            throw new JSONPointerException("Value[" + curr + "] is not an array or object therefore path " + pointer + " cannot be resolved.");
+        }
+        return curr;
+    }
+
+    private static int index(JSONPointer pointer, String token, int max) throws JSONException
+    {
+        try
+        {
+            int index = Integer.parseInt(token);
+            if ((index < 0) || (index > max) || ! String.valueOf(index).equals(token))
+            {
+                throw new JSONPointerException("Index " + token + " of path " + pointer + " is out of bounds.");
+            }
+            return index;
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new JSONPointerException(token + " is not an array index.", ex);
+        }
+    }
+
+    public JSONArray toJSONArray()
+    {
+        JSONArray array = new JSONArray();
+        for (Operation operation : this.operations)
+        {
+            array.put(operation.toJSONObject());
+        }
+        return array;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.toJSONArray().toString();
+    }
+}
\ No newline at end of file
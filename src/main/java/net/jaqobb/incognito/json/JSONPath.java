@@ -0,0 +1,430 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.function.Consumer;
+
+@SuppressWarnings("DynamicRegexReplaceableByCompiledPattern")
+public class JSONPath
+{
+    private static final int MAX_SEGMENTS = 63;
+
+    private static final byte KEY         = 0;
+    private static final byte WILDCARD    = 1;
+    private static final byte DESCENDANTS = 2;
+
+    public static class Builder
+    {
+        private final List<String> keys  = new ArrayList<>(10);
+        private final List<Byte>   kinds = new ArrayList<>(10);
+
+        public JSONPath build()
+        {
+            return new JSONPath(this.keys, this.kinds);
+        }
+
+        public Builder append(String key)
+        {
+            if (key == null)
+            {
+                throw new NullPointerException("Null key.");
+            }
+            return this.append(key, KEY);
+        }
+
+        public Builder append(int arrayIndex)
+        {
+            return this.append(String.valueOf(arrayIndex), KEY);
+        }
+
+        public Builder wildcard()
+        {
+            return this.append("*", WILDCARD);
+        }
+
+        public Builder descendants()
+        {
+            return this.append("**", DESCENDANTS);
+        }
+
+        private Builder append(String key, byte kind)
+        {
+            this.keys.add(key);
+            this.kinds.add(kind);
+            return this;
+        }
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    private final String[] keys;
+    private final int[]    indexes;
+    private final byte[]   kinds;
+    private final long     finalState;
+    private final long     literalStates;
+
+    public JSONPath(String path)
+    {
+        this(parse(path));
+    }
+
+    private JSONPath(Builder builder)
+    {
+        this(builder.keys, builder.kinds);
+    }
+
+    private JSONPath(List<String> keys, List<Byte> kinds)
+    {
+        int length = keys.size();
+        if (length > MAX_SEGMENTS)
+        {
+            throw new IllegalArgumentException("A JSON path cannot have more than " + MAX_SEGMENTS + " segments.");
+        }
+        this.keys = keys.toArray(new String[length]);
+        this.indexes = new int[length];
+        this.kinds = new byte[length];
+        long literalStates = 0;
+        for (int i = 0; i < length; i += 1)
+        {
+            this.kinds[i] = kinds.get(i);
+            this.indexes[i] = - 1;
+            if (this.kinds[i] == KEY)
+            {
+                literalStates |= 1L << i;
+                try
+                {
+                    int index = Integer.parseInt(this.keys[i]);
+                    if ((index >= 0) && String.valueOf(index).equals(this.keys[i]))
+                    {
+                        this.indexes[i] = index;
+                    }
+                }
+                catch (NumberFormatException ignored)
+                {
+                }
+            }
+        }
+        this.finalState = 1L << length;
+        this.literalStates = literalStates;
+    }
+
+    private static Builder parse(String path)
+    {
+        if (path == null)
+        {
+            throw new NullPointerException("Null path.");
+        }
+        Builder builder = new Builder();
+        if (path.isEmpty())
+        {
+            return builder;
+        }
+        if (! path.startsWith("/"))
+        {
+            throw new IllegalArgumentException("A JSON path should start with '/'.");
+        }
+        for (String token : path.substring(1).split("/", - 1))
+        {
+            if ("*".equals(token))
+            {
+                builder.wildcard();
+            }
+            else if ("**".equals(token))
+            {
+                builder.descendants();
+            }
+            else
+            {
+                builder.append(token.replace("~1", "/").replace("~2", "*").replace("~0", "~"));
+            }
+        }
+        return builder;
+    }
+
+    private long closure(long states)
+    {
+        for (int i = 0; i < this.kinds.length; i += 1)
+        {
+            if (((states & (1L << i)) != 0) && (this.kinds[i] == DESCENDANTS))
+            {
+                states |= 1L << (i + 1);
+            }
+        }
+        return states;
+    }
+
+    private long step(long states, String key, int index)
+    {
+        long next = 0;
+        for (int i = 0; i < this.kinds.length; i += 1)
+        {
+            if ((states & (1L << i)) == 0)
+            {
+                continue;
+            }
+            switch (this.kinds[i])
+            {
+                case KEY:
+                    if ((key != null) ? this.keys[i].equals(key) : (this.indexes[i] == index))
+                    {
+                        next |= 1L << (i + 1);
+                    }
+                    break;
+                case WILDCARD:
+                    next |= 1L << (i + 1);
+                    break;
+                default:
+                    next |= 1L << i;
+            }
+        }
+        return this.closure(next);
+    }
+
+    public List<Object> queryFrom(Object doc)
+    {
+        List<Object> results = new ArrayList<>(10);
+        this.queryFrom(doc, results::add);
+        return results;
+    }
+
+    public void queryFrom(Object doc, Consumer<Object> consumer)
+    {
+        this.evaluate(doc, this.closure(1L), consumer);
+    }
+
+    public List<Object> queryFrom(JSONTokener tokener) throws JSONException
+    {
+        List<Object> results = new ArrayList<>(10);
+        this.queryFrom(tokener, results::add);
+        return results;
+    }
+
+    public void queryFrom(JSONTokener tokener, Consumer<Object> consumer) throws JSONException
+    {
+        this.stream(tokener, this.closure(1L), consumer);
+    }
+
+    private void evaluate(Object value, long states, Consumer<Object> consumer)
+    {
+        if ((states & this.finalState) != 0)
+        {
+            consumer.accept(value);
+            states &= ~ this.finalState;
+        }
+        if (states == 0)
+        {
+            return;
+        }
+        if (value instanceof JSONObject)
+        {
+            JSONObject obj = (JSONObject) value;
+            if ((states & ~ this.literalStates) == 0)
+            {
+                for (int i = 0; i < this.kinds.length; i += 1)
+                {
+                    if (((states & (1L << i)) != 0) && this.isFirstKey(states, i))
+                    {
+                        Object child = obj.opt(this.keys[i]);
+                        if (child != null)
+                        {
+                            this.evaluate(child, this.step(states, this.keys[i], - 1), consumer);
+                        }
+                    }
+                }
+                return;
+            }
+            for (Entry<String, Object> entry : obj.entrySet())
+            {
+                long next = this.step(states, entry.getKey(), - 1);
+                if (next != 0)
+                {
+                    this.evaluate(entry.getValue(), next, consumer);
+                }
+            }
+        }
+        else if (value instanceof JSONArray)
+        {
+            JSONArray array = (JSONArray) value;
+            for (int i = 0; i < array.length(); i += 1)
+            {
+                long next = this.step(states, null, i);
+                if (next != 0)
+                {
+                    this.evaluate(array.opt(i), next, consumer);
+                }
+            }
+        }
+    }
+
+    private boolean isFirstKey(long states, int index)
+    {
+        for (int i = 0; i < index; i += 1)
+        {
+            if (((states & (1L << i)) != 0) && this.keys[i].equals(this.keys[index]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void stream(JSONTokener tokener, long states, Consumer<Object> consumer) throws JSONException
+    {
+        if ((states & this.finalState) != 0)
+        {
+            this.evaluate(tokener.nextValue(), states, consumer);
+            return;
+        }
+        switch (tokener.nextClean())
+        {
+            case '{':
+                this.streamObject(tokener, states, consumer);
+                break;
+            case '[':
+                this.streamArray(tokener, states, consumer);
+                break;
+            default:
+                tokener.back();
+                tokener.skipValue();
+        }
+    }
+
+    private void streamObject(JSONTokener tokener, long states, Consumer<Object> consumer) throws JSONException
+    {
+        while (true)
+        {
+            String key;
+            switch (tokener.nextClean())
+            {
+                case 0:
+                    throw tokener.syntaxError("A JSONObject text must end with '}'.");
+                case '}':
+                    return;
+                default:
+                    tokener.back();
+                    key = tokener.nextValue().toString();
+            }
+            if (tokener.nextClean() != ':')
+            {
+                throw tokener.syntaxError("Expected a ':' after a key.");
+            }
+            long next = this.step(states, key, - 1);
+            if (next == 0)
+            {
+                tokener.skipValue();
+            }
+            else
+            {
+                this.stream(tokener, next, consumer);
+            }
+            switch (tokener.nextClean())
+            {
+                case ';':
+                case ',':
+                    if (tokener.nextClean() == '}')
+                    {
+                        return;
+                    }
+                    tokener.back();
+                    break;
+                case '}':
+                    return;
+                default:
+                    throw tokener.syntaxError("Expected a ',' or '}'.");
+            }
+        }
+    }
+
+    private void streamArray(JSONTokener tokener, long states, Consumer<Object> consumer) throws JSONException
+    {
+        if (tokener.nextClean() == ']')
+        {
+            return;
+        }
+        tokener.back();
+        for (int index = 0; ; index += 1)
+        {
+            long next = this.step(states, null, index);
+            if (tokener.nextClean() == ',')
+            {
+                tokener.back();
+                if ((next & this.finalState) != 0)
+                {
+                    consumer.accept(JSONObject.NULL);
+                }
+            }
+            else
+            {
+                tokener.back();
+                if (next == 0)
+                {
+                    tokener.skipValue();
+                }
+                else
+                {
+                    this.stream(tokener, next, consumer);
+                }
+            }
+            switch (tokener.nextClean())
+            {
+                case ',':
+                    if (tokener.nextClean() == ']')
+                    {
+                        return;
+                    }
+                    tokener.back();
+                    break;
+                case ']':
+                    return;
+                default:
+                    throw tokener.syntaxError("Expected a ',' or ']'.");
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("");
+        for (int i = 0; i < this.keys.length; i += 1)
+        {
+            builder.append('/');
+            builder.append((this.kinds[i] == KEY) ? escape(this.keys[i]) : this.keys[i]);
+        }
+        return builder.toString();
+    }
+
+    private static String escape(String key)
+    {
+        key = key.replace("~", "~0").replace("/", "~1");
+        return ("*".equals(key) || "**".equals(key)) ? key.replace("*", "~2") : key;
+    }
+}
\ No newline at end of file
@@ -113,6 +113,11 @@ public class JSONPointer
         this.refTokens = new ArrayList<>(refTokens);
     }
 
+    List<String> getRefTokens()
+    {
+        return this.refTokens;
+    }
+
     private String unescape(String token)
     {
         return token.replace("~1", "/").replace("~0", "~").replace("\\\"", "\"").replace("\\\\", "\\");
@@ -143,6 +148,11 @@ public class JSONPointer
         return curr;
     }
 
+    public static Object[] queryAll(Object doc, JSONPointer... pointers)
+    {
+        return new JSONPointerSet(pointers).queryFrom(doc);
+    }
+
     private Object readByIndexToken(Object curr, String indexToken)
     {
         try
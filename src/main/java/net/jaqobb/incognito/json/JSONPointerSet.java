@@ -0,0 +1,302 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+public class JSONPointerSet
+{
+    private static final int[] NO_TARGETS = new int[0];
+
+    private static class Node
+    {
+        private final Map<String, Node> children = new HashMap<>(4);
+        private       int[]             targets  = NO_TARGETS;
+        private       int               index    = - 1;
+        private       int               maxIndex = - 1;
+
+        private Node child(String token)
+        {
+            Node child = this.children.get(token);
+            if (child == null)
+            {
+                child = new Node();
+                try
+                {
+                    int index = Integer.parseInt(token);
+                    if (String.valueOf(index).equals(token))
+                    {
+                        child.index = index;
+                    }
+                }
+                catch (NumberFormatException ignored)
+                {
+                }
+                if (child.index > this.maxIndex)
+                {
+                    this.maxIndex = child.index;
+                }
+                this.children.put(token, child);
+            }
+            return child;
+        }
+
+        private Node childAt(int index)
+        {
+            return (index > this.maxIndex) ? null : this.children.get(String.valueOf(index));
+        }
+    }
+
+    private static class Cursor
+    {
+        private final Object[]  values;
+        private final boolean[] found;
+        private       int       remaining;
+
+        private Cursor(int size)
+        {
+            this.values = new Object[size];
+            this.found = new boolean[size];
+            this.remaining = size;
+        }
+    }
+
+    private final Node root = new Node();
+    private final int  size;
+
+    public JSONPointerSet(JSONPointer... pointers)
+    {
+        this(Arrays.asList(pointers));
+    }
+
+    public JSONPointerSet(List<JSONPointer> pointers)
+    {
+        this.size = pointers.size();
+        for (int i = 0; i < this.size; i += 1)
+        {
+            JSONPointer pointer = pointers.get(i);
+            if (pointer == null)
+            {
+                throw new NullPointerException("Null pointer.");
+            }
+            Node node = this.root;
+            for (String token : pointer.getRefTokens())
+            {
+                node = node.child(token);
+            }
+            node.targets = Arrays.copyOf(node.targets, node.targets.length + 1);
+            node.targets[node.targets.length - 1] = i;
+        }
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public Object[] queryFrom(Object doc)
+    {
+        Cursor cursor = new Cursor(this.size);
+        this.resolve(this.root, doc, cursor);
+        return cursor.values;
+    }
+
+    public Object[] queryFrom(String src) throws JSONException
+    {
+        return this.queryFrom(new JSONTokener(src));
+    }
+
+    public Object[] queryFrom(JSONTokener tokener) throws JSONException
+    {
+        Cursor cursor = new Cursor(this.size);
+        if (this.size > 0)
+        {
+            this.stream(tokener, this.root, cursor);
+        }
+        return cursor.values;
+    }
+
+    private void resolve(Node node, Object value, Cursor cursor)
+    {
+        for (int target : node.targets)
+        {
+            if (! cursor.found[target])
+            {
+                cursor.found[target] = true;
+                cursor.values[target] = value;
+                cursor.remaining -= 1;
+            }
+        }
+        if (value instanceof JSONObject)
+        {
+            JSONObject obj = (JSONObject) value;
+            for (Entry<String, Node> entry : node.children.entrySet())
+            {
+                Object child = obj.opt(entry.getKey());
+                if (child != null)
+                {
+                    this.resolve(entry.getValue(), child, cursor);
+                }
+            }
+        }
+        else if (value instanceof JSONArray)
+        {
+            JSONArray array = (JSONArray) value;
+            for (Node child : node.children.values())
+            {
+                if ((child.index >= 0) && (child.index < array.length()))
+                {
+                    this.resolve(child, array.opt(child.index), cursor);
+                }
+            }
+        }
+    }
+
+    private void stream(JSONTokener tokener, Node node, Cursor cursor) throws JSONException
+    {
+        if (node.targets.length > 0)
+        {
+            this.resolve(node, tokener.nextValue(), cursor);
+            return;
+        }
+        switch (tokener.nextClean())
+        {
+            case '{':
+                this.streamObject(tokener, node, cursor);
+                break;
+            case '[':
+                this.streamArray(tokener, node, cursor);
+                break;
+            default:
+                tokener.back();
+                tokener.skipValue();
+        }
+    }
+
+    private void streamObject(JSONTokener tokener, Node node, Cursor cursor) throws JSONException
+    {
+        while (true)
+        {
+            String key;
+            switch (tokener.nextClean())
+            {
+                case 0:
+                    throw tokener.syntaxError("A JSONObject text must end with '}'.");
+                case '}':
+                    return;
+                default:
+                    tokener.back();
+                    key = tokener.nextValue().toString();
+            }
+            if (tokener.nextClean() != ':')
+            {
+                throw tokener.syntaxError("Expected a ':' after a key.");
+            }
+            Node child = node.children.get(key);
+            if (child == null)
+            {
+                tokener.skipValue();
+            }
+            else
+            {
+                this.stream(tokener, child, cursor);
+                if (cursor.remaining == 0)
+                {
+                    return;
+                }
+            }
+            switch (tokener.nextClean())
+            {
+                case ';':
+                case ',':
+                    if (tokener.nextClean() == '}')
+                    {
+                        return;
+                    }
+                    tokener.back();
+                    break;
+                case '}':
+                    return;
+                default:
+                    throw tokener.syntaxError("Expected a ',' or '}'.");
+            }
+        }
+    }
+
+    private void streamArray(JSONTokener tokener, Node node, Cursor cursor) throws JSONException
+    {
+        if (tokener.nextClean() == ']')
+        {
+            return;
+        }
+        tokener.back();
+        for (int index = 0; ; index += 1)
+        {
+            Node child = node.childAt(index);
+            if (tokener.nextClean() == ',')
+            {
+                tokener.back();
+                if (child != null)
+                {
+                    this.resolve(child, JSONObject.NULL, cursor);
+                }
+            }
+            else
+            {
+                tokener.back();
+                if (child == null)
+                {
+                    tokener.skipValue();
+                }
+                else
+                {
+                    this.stream(tokener, child, cursor);
+                }
+            }
+            if (cursor.remaining == 0)
+            {
+                return;
+            }
+            switch (tokener.nextClean())
+            {
+                case ',':
+                    if (tokener.nextClean() == ']')
+                    {
+                        return;
+                    }
+                    tokener.back();
+                    break;
+                case ']':
+                    return;
+                default:
+                    throw tokener.syntaxError("Expected a ',' or ']'.");
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,645 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.json;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public final class JSONStructuralIndex
+{
+    private static final int BLOCK = 64;
+
+    private static final long HIGH      = 0x8000800080008000L;
+    private static final long LOW       = 0x7FFF7FFF7FFF7FFFL;
+    private static final long CASE      = 0x0020002000200020L;
+    private static final long SPACE     = 0x7FDF7FDF7FDF7FDFL;
+    private static final long QUOTE     = 0x0022002200220022L;
+    private static final long BACKSLASH = 0x005C005C005C005CL;
+    private static final long OPEN      = 0x007B007B007B007BL;
+    private static final long CLOSE     = 0x007D007D007D007DL;
+    private static final long COLON     = 0x003A003A003A003AL;
+    private static final long COMMA     = 0x002C002C002C002CL;
+    private static final long GATHER    = (1L << 48) | (1L << 33) | (1L << 18) | (1L << 3);
+    private static final long EVEN_BITS = 0x5555555555555555L;
+    private static final long ODD_BITS  = ~ EVEN_BITS;
+
+    private final char[]       chars;
+    private final CharSequence text;
+    private       int[]        indexes;
+    private       int          count;
+
+    private long prevInString;
+    private long prevOddBackslash;
+    private long prevPseudoPred = 1L;
+
+    private JSONNumberPolicy numberPolicy = JSONNumberPolicy.DEFAULT;
+
+    public JSONStructuralIndex(String src) throws JSONException
+    {
+        this(src.toCharArray());
+    }
+
+    public JSONStructuralIndex(char[] src) throws JSONException
+    {
+        this.chars = src;
+        this.text = CharBuffer.wrap(src);
+        this.indexes = new int[Math.max(16, src.length >>> 2)];
+        int length = src.length - (src.length % BLOCK);
+        for (int base = 0; base < length; base += BLOCK)
+        {
+            this.indexBlock(src, base, base);
+        }
+        if (length < src.length)
+        {
+            char[] tail = new char[BLOCK];
+            Arrays.fill(tail, ' ');
+            System.arraycopy(src, length, tail, 0, src.length - length);
+            this.indexBlock(tail, 0, length);
+        }
+        if (this.prevInString != 0)
+        {
+            throw error("Unterminated string", src.length);
+        }
+    }
+
+    private void indexBlock(char[] src, int offset, int base)
+    {
+        long quote = 0;
+        long backslash = 0;
+        long whitespace = 0;
+        long op = 0;
+        for (int i = 0; i < 16; i += 1)
+        {
+            int pos = offset + (i << 2);
+            long word = src[pos] | ((long) src[pos + 1] << 16) | ((long) src[pos + 2] << 32) | ((long) src[pos + 3] << 48);
+            long folded = word | CASE;
+            int shift = i << 2;
+            quote |= gather(equal(word, QUOTE)) << shift;
+            backslash |= gather(equal(word, BACKSLASH)) << shift;
+            whitespace |= gather(~ (((word & LOW) + SPACE) | word) & HIGH) << shift;
+            op |= gather(equal(folded, OPEN) | equal(folded, CLOSE) | equal(word, COLON) | equal(word, COMMA)) << shift;
+        }
+        long quoteBits = quote & ~ this.escaped(backslash);
+        long inString = prefixXor(quoteBits) ^ this.prevInString;
+        this.prevInString = inString >> 63;
+        long structurals = (op & ~ inString) | quoteBits;
+        long pseudoPred = structurals | whitespace;
+        long pseudo = ((pseudoPred << 1) | this.prevPseudoPred) & ~ whitespace & ~ inString;
+        this.prevPseudoPred = pseudoPred >>> 63;
+        structurals = (structurals | pseudo) & ~ (quoteBits & ~ inString);
+        while (structurals != 0)
+        {
+            if (this.count == this.indexes.length)
+            {
+                this.indexes = Arrays.copyOf(this.indexes, this.count << 1);
+            }
+            this.indexes[this.count] = base + Long.numberOfTrailingZeros(structurals);
+            this.count += 1;
+            structurals &= structurals - 1;
+        }
+    }
+
+    private static long equal(long word, long pattern)
+    {
+        long diff = word ^ pattern;
+        return ~ (((diff & LOW) + LOW) | diff | LOW);
+    }
+
+    private static long gather(long lanes)
+    {
+        return (((lanes >>> 15) * GATHER) >>> 48) & 0xFL;
+    }
+
+    private static long prefixXor(long bits)
+    {
+        bits ^= bits << 1;
+        bits ^= bits << 2;
+        bits ^= bits << 4;
+        bits ^= bits << 8;
+        bits ^= bits << 16;
+        bits ^= bits << 32;
+        return bits;
+    }
+
+    private long escaped(long backslash)
+    {
+        long startEdges = backslash & ~ (backslash << 1);
+        long evenStartMask = EVEN_BITS ^ this.prevOddBackslash;
+        long evenStarts = startEdges & evenStartMask;
+        long oddStarts = startEdges & ~ evenStartMask;
+        long evenCarries = backslash + evenStarts;
+        long oddCarries = backslash + oddStarts;
+        boolean endsOdd = Long.compareUnsigned(oddCarries, backslash) < 0;
+        oddCarries |= this.prevOddBackslash;
+        this.prevOddBackslash = endsOdd ? 1L : 0L;
+        long evenStartOddEnd = evenCarries & ~ backslash & ODD_BITS;
+        long oddStartEvenEnd = oddCarries & ~ backslash & EVEN_BITS;
+        return evenStartOddEnd | oddStartEvenEnd;
+    }
+
+    public int size()
+    {
+        return this.count;
+    }
+
+    public int position(int index)
+    {
+        if ((index < 0) || (index >= this.count))
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.count);
+        }
+        return this.indexes[index];
+    }
+
+    public JSONNumberPolicy getNumberPolicy()
+    {
+        return this.numberPolicy;
+    }
+
+    public void setNumberPolicy(JSONNumberPolicy numberPolicy)
+    {
+        if (numberPolicy == null)
+        {
+            throw new NullPointerException("Null number policy.");
+        }
+        this.numberPolicy = numberPolicy;
+    }
+
+    public Object parse() throws JSONException
+    {
+        Cursor cursor = new Cursor();
+        Object val = this.parseValue(cursor);
+        if (cursor.next < this.count)
+        {
+            throw error("Unexpected trailing content", this.indexes[cursor.next]);
+        }
+        return val;
+    }
+
+    public Object query(JSONPointer pointer) throws JSONException
+    {
+        Cursor cursor = new Cursor();
+        List<String> tokens = pointer.getRefTokens();
+        for (String token : tokens)
+        {
+            int pos = this.take(cursor);
+            char ch = this.chars[pos];
+            if (ch == '{')
+            {
+                if (! this.findKey(cursor, token))
+                {
+                    return null;
+                }
+            }
+            else if (ch == '[')
+            {
+                int index = index(token);
+                if ((index < 0) || ! this.findIndex(cursor, index))
+                {
+                    return null;
+                }
+            }
+            else
+            {
+                throw new JSONPointerException("Value[" + this.parseScalar(pos) + "] is not an array or object therefore its key " + token + " cannot be resolved.");
+            }
+        }
+        return this.parseValue(cursor);
+    }
+
+    private boolean findKey(Cursor cursor, String key) throws JSONException
+    {
+        if (this.peek(cursor) == '}')
+        {
+            cursor.next += 1;
+            return false;
+        }
+        while (true)
+        {
+            String name = this.parseKey(cursor);
+            this.expect(cursor, ':');
+            if (name.equals(key))
+            {
+                return true;
+            }
+            this.skipValue(cursor);
+            int pos = this.take(cursor);
+            switch (this.chars[pos])
+            {
+                case ',':
+                    break;
+                case '}':
+                    return false;
+                default:
+                    throw error("Expected a ',' or '}'", pos);
+            }
+        }
+    }
+
+    private boolean findIndex(Cursor cursor, int index) throws JSONException
+    {
+        if (this.peek(cursor) == ']')
+        {
+            cursor.next += 1;
+            return false;
+        }
+        for (int i = 0; ; i += 1)
+        {
+            if (i == index)
+            {
+                return true;
+            }
+            this.skipValue(cursor);
+            int pos = this.take(cursor);
+            switch (this.chars[pos])
+            {
+                case ',':
+                    break;
+                case ']':
+                    return false;
+                default:
+                    throw error("Expected a ',' or ']'", pos);
+            }
+        }
+    }
+
+    private void skipValue(Cursor cursor) throws JSONException
+    {
+        int depth = 0;
+        do
+        {
+            switch (this.chars[this.take(cursor)])
+            {
+                case '{':
+                case '[':
+                    depth += 1;
+                    break;
+                case '}':
+                case ']':
+                    depth -= 1;
+                    break;
+                default:
+            }
+        }
+        while (depth > 0);
+    }
+
+    private Object parseValue(Cursor cursor) throws JSONException
+    {
+        int pos = this.take(cursor);
+        switch (this.chars[pos])
+        {
+            case '{':
+                return this.parseObject(cursor);
+            case '[':
+                return this.parseArray(cursor);
+            case '"':
+                return this.parseString(pos);
+            case '}':
+            case ']':
+            case ':':
+            case ',':
+                throw error("Unexpected '" + this.chars[pos] + "'", pos);
+            default:
+                return this.parseScalar(pos);
+        }
+    }
+
+    private JSONObject parseObject(Cursor cursor) throws JSONException
+    {
+        JSONObject obj = new JSONObject();
+        if (this.peek(cursor) == '}')
+        {
+            cursor.next += 1;
+            return obj;
+        }
+        while (true)
+        {
+            int keyPos = this.indexes[cursor.next];
+            String key = this.parseKey(cursor);
+            this.expect(cursor, ':');
+            Object val = this.parseValue(cursor);
+            if (obj.has(key))
+            {
+                throw error("Duplicate key \"" + key + "\"", keyPos);
+            }
+            obj.putParsed(key, val);
+            int pos = this.take(cursor);
+            switch (this.chars[pos])
+            {
+                case ',':
+                    break;
+                case '}':
+                    return obj;
+                default:
+                    throw error("Expected a ',' or '}'", pos);
+            }
+        }
+    }
+
+    private JSONArray parseArray(Cursor cursor) throws JSONException
+    {
+        JSONArray array = new JSONArray();
+        if (this.peek(cursor) == ']')
+        {
+            cursor.next += 1;
+            return array;
+        }
+        while (true)
+        {
+            array.addParsed(this.parseValue(cursor));
+            int pos = this.take(cursor);
+            switch (this.chars[pos])
+            {
+                case ',':
+                    break;
+                case ']':
+                    return array;
+                default:
+                    throw error("Expected a ',' or ']'", pos);
+            }
+        }
+    }
+
+    private String parseKey(Cursor cursor) throws JSONException
+    {
+        int pos = this.take(cursor);
+        if (this.chars[pos] != '"')
+        {
+            throw error("Expected a key", pos);
+        }
+        return this.parseString(pos);
+    }
+
+    private String parseString(int pos) throws JSONException
+    {
+        char[] chars = this.chars;
+        int start = pos + 1;
+        int end = start;
+        while (chars[end] != '"')
+        {
+            if (chars[end] == '\\')
+            {
+                return this.parseEscapedString(start, end);
+            }
+            if (chars[end] < ' ')
+            {
+                throw error("Unescaped control character", end);
+            }
+            end += 1;
+        }
+        return new String(chars, start, end - start);
+    }
+
+    private String parseEscapedString(int start, int pos) throws JSONException
+    {
+        char[] chars = this.chars;
+        StringBuilder builder = new StringBuilder((pos - start) + 16);
+        builder.append(chars, start, pos - start);
+        while (true)
+        {
+            char ch = chars[pos];
+            if (ch == '"')
+            {
+                return builder.toString();
+            }
+            if (ch < ' ')
+            {
+                throw error("Unescaped control character", pos);
+            }
+            if (ch != '\\')
+            {
+                builder.append(ch);
+                pos += 1;
+                continue;
+            }
+            ch = chars[pos + 1];
+            switch (ch)
+            {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i += 1)
+                    {
+                        int digit = ((pos + 2 + i) < chars.length) ? JSONTokener.dehexchar(chars[pos + 2 + i]) : - 1;
+                        if (digit < 0)
+                        {
+                            throw error("Illegal escape", pos);
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    builder.append((char) code);
+                    pos += 4;
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append(ch);
+                    break;
+                default:
+                    throw error("Illegal escape", pos);
+            }
+            pos += 2;
+        }
+    }
+
+    private Object parseScalar(int pos) throws JSONException
+    {
+        char[] chars = this.chars;
+        int end = pos;
+        while ((end < chars.length) && (chars[end] > ' ') && (",:[]{}\"".indexOf(chars[end]) < 0))
+        {
+            end += 1;
+        }
+        int length = end - pos;
+        if (matches(chars, pos, length, "true"))
+        {
+            return Boolean.TRUE;
+        }
+        if (matches(chars, pos, length, "false"))
+        {
+            return Boolean.FALSE;
+        }
+        if (matches(chars, pos, length, "null"))
+        {
+            return JSONObject.NULL;
+        }
+        if (! isNumber(chars, pos, end))
+        {
+            throw error("Unexpected value '" + new String(chars, pos, length) + "'", pos);
+        }
+        Object number = this.numberPolicy.toValue(this.text, pos, end);
+        return (number != null) ? number : this.numberPolicy.stringToValue(new String(chars, pos, length));
+    }
+
+    private static boolean matches(char[] chars, int pos, int length, String literal)
+    {
+        if (length != literal.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i += 1)
+        {
+            if (chars[pos + i] != literal.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNumber(char[] chars, int pos, int end)
+    {
+        if ((pos < end) && (chars[pos] == '-'))
+        {
+            pos += 1;
+        }
+        if (pos == end)
+        {
+            return false;
+        }
+        if (chars[pos] == '0')
+        {
+            pos += 1;
+        }
+        else
+        {
+            int digits = pos;
+            pos = skipDigits(chars, pos, end);
+            if (pos == digits)
+            {
+                return false;
+            }
+        }
+        if ((pos < end) && (chars[pos] == '.'))
+        {
+            int digits = pos + 1;
+            pos = skipDigits(chars, digits, end);
+            if (pos == digits)
+            {
+                return false;
+            }
+        }
+        if ((pos < end) && ((chars[pos] == 'e') || (chars[pos] == 'E')))
+        {
+            pos += 1;
+            if ((pos < end) && ((chars[pos] == '+') || (chars[pos] == '-')))
+            {
+                pos += 1;
+            }
+            int digits = pos;
+            pos = skipDigits(chars, digits, end);
+            if (pos == digits)
+            {
+                return false;
+            }
+        }
+        return pos == end;
+    }
+
+    private static int skipDigits(char[] chars, int pos, int end)
+    {
+        while ((pos < end) && (chars[pos] >= '0') && (chars[pos] <= '9'))
+        {
+            pos += 1;
+        }
+        return pos;
+    }
+
+    private static int index(String token)
+    {
+        int length = token.length();
+        if ((length == 0) || (length > 9) || ((length > 1) && (token.charAt(0) == '0')))
+        {
+            return - 1;
+        }
+        int index = 0;
+        for (int i = 0; i < length; i += 1)
+        {
+            char ch = token.charAt(i);
+            if ((ch < '0') || (ch > '9'))
+            {
+                return - 1;
+            }
+            index = (index * 10) + (ch - '0');
+        }
+        return index;
+    }
+
+    private int take(Cursor cursor) throws JSONException
+    {
+        if (cursor.next >= this.count)
+        {
+            throw error("Unexpected end of input", this.chars.length);
+        }
+        int pos = this.indexes[cursor.next];
+        cursor.next += 1;
+        return pos;
+    }
+
+    private char peek(Cursor cursor) throws JSONException
+    {
+        if (cursor.next >= this.count)
+        {
+            throw error("Unexpected end of input", this.chars.length);
+        }
+        return this.chars[this.indexes[cursor.next]];
+    }
+
+    private void expect(Cursor cursor, char expected) throws JSONException
+    {
+        int pos = this.take(cursor);
+        if (this.chars[pos] != expected)
+        {
+            throw error("Expected a '" + expected + "'", pos);
+        }
+    }
+
+    private static JSONException error(String msg, int pos)
+    {
+        return new JSONException(msg + " at " + pos + ".");
+    }
+
+    private static final class Cursor
+    {
+        private int next;
+    }
+}
\ No newline at end of file
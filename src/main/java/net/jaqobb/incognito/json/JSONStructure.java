@@ -0,0 +1,514 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jaqobb.incognito.json;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+final class JSONStructure
+{
+    static final class Hash
+    {
+        private final int                         value;
+        private       List<WeakReference<Object>> parents;
+
+        Hash(int value)
+        {
+            this.value = value;
+        }
+
+        int getValue()
+        {
+            return this.value;
+        }
+
+        // Parents are held weakly: a long-lived child hashed inside many short-lived documents
+        // must not keep them alive, and a parent the child has since been removed from only costs
+        // a spurious invalidation.
+        synchronized void addParent(Object parent)
+        {
+            if (this.parents == null)
+            {
+                this.parents = new ArrayList<>(2);
+            }
+            for (Iterator<WeakReference<Object>> iterator = this.parents.iterator(); iterator.hasNext(); )
+            {
+                Object existing = iterator.next().get();
+                if (existing == parent)
+                {
+                    return;
+                }
+                if (existing == null)
+                {
+                    iterator.remove();
+                }
+            }
+            this.parents.add(new WeakReference<>(parent));
+        }
+
+        synchronized List<Object> getParents()
+        {
+            if (this.parents == null)
+            {
+                return Collections.emptyList();
+            }
+            List<Object> parents = new ArrayList<>(this.parents.size());
+            for (WeakReference<Object> reference : this.parents)
+            {
+                Object parent = reference.get();
+                if (parent != null)
+                {
+                    parents.add(parent);
+                }
+            }
+            return parents;
+        }
+    }
+
+    private JSONStructure()
+    {
+    }
+
+    // Called after every mutation has been made. Bumps the container's version and drops its
+    // cached hash, then does the same for every container whose cached hash was built on top of
+    // it; containers that were never hashed pay for one version bump and nothing else.
+    static void touch(Object container)
+    {
+        Hash hash = invalidate(container);
+        if (hash == null)
+        {
+            return;
+        }
+        Deque<Hash> pending = new ArrayDeque<>(4);
+        pending.push(hash);
+        while (! pending.isEmpty())
+        {
+            for (Object parent : pending.pop().getParents())
+            {
+                // The version is bumped even for a parent without a cached hash, as a walk may be
+                // about to store one computed from the old value.
+                Hash parentHash = invalidate(parent);
+                if (parentHash != null)
+                {
+                    pending.push(parentHash);
+                }
+            }
+        }
+    }
+
+    private static Hash invalidate(Object container)
+    {
+        if (container instanceof JSONObject)
+        {
+            return ((JSONObject) container).invalidateStructuralHash();
+        }
+        return ((JSONArray) container).invalidateStructuralHash();
+    }
+
+    private static Hash structuralHash(Object container)
+    {
+        if (container instanceof JSONObject)
+        {
+            return ((JSONObject) container).getStructuralHash();
+        }
+        return ((JSONArray) container).getStructuralHash();
+    }
+
+    private static int structuralVersion(Object container)
+    {
+        if (container instanceof JSONObject)
+        {
+            return ((JSONObject) container).getStructuralVersion();
+        }
+        return ((JSONArray) container).getStructuralVersion();
+    }
+
+    // Publishes a hash, then checks the version read before the walk started: a mutation that
+    // raced the walk has either bumped the version by now or will find the hash and drop it.
+    private static boolean store(Object container, int version, Hash hash)
+    {
+        if (container instanceof JSONObject)
+        {
+            ((JSONObject) container).setStructuralHash(hash);
+        }
+        else
+        {
+            ((JSONArray) container).setStructuralHash(hash);
+        }
+        if (structuralVersion(container) == version)
+        {
+            return true;
+        }
+        if (structuralHash(container) == hash)
+        {
+            if (container instanceof JSONObject)
+            {
+                ((JSONObject) container).setStructuralHash(null);
+            }
+            else
+            {
+                ((JSONArray) container).setStructuralHash(null);
+            }
+        }
+        return false;
+    }
+
+    // Records the parent on the child's hash before checking that hash is still the published
+    // one, so an invalidation of the child either reaches the parent or is seen here.
+    private static boolean link(Object child, Hash hash, Object parent)
+    {
+        hash.addParent(parent);
+        return structuralHash(child) == hash;
+    }
+
+    private static final class Frame
+    {
+        private final Object      container;
+        private final int         version;
+        private final Iterator<?> iterator;
+        private       String      key;
+        private       int         value;
+        private       boolean     cacheable = true;
+
+        Frame(Object container)
+        {
+            this.container = container;
+            this.version = structuralVersion(container);
+            if (container instanceof JSONObject)
+            {
+                this.iterator = ((JSONObject) container).entrySet().iterator();
+                this.value = 0;
+            }
+            else
+            {
+                this.iterator = ((JSONArray) container).iterator();
+                this.value = 1;
+            }
+        }
+
+        Object next()
+        {
+            Object next = this.iterator.next();
+            if (this.container instanceof JSONObject)
+            {
+                Entry<?, ?> entry = (Entry<?, ?>) next;
+                this.key = (String) entry.getKey();
+                return entry.getValue();
+            }
+            return next;
+        }
+
+        void add(int hash)
+        {
+            if (this.key != null)
+            {
+                this.value += this.key.hashCode() ^ hash;
+            }
+            else
+            {
+                this.value = (31 * this.value) + hash;
+            }
+        }
+
+        void add(Object child, Hash hash)
+        {
+            this.add(hash.getValue());
+            if (this.cacheable && ! link(child, hash, this.container))
+            {
+                this.cacheable = false;
+            }
+        }
+    }
+
+    // Post-order walk with an explicit stack, so nesting depth is bounded by the heap rather than
+    // the thread stack; every container on the way caches its own hash until it or something
+    // below it is mutated.
+    static int hash(Object root)
+    {
+        Hash cached = structuralHash(root);
+        if (cached != null)
+        {
+            return cached.getValue();
+        }
+        Deque<Frame> stack = new ArrayDeque<>(16);
+        stack.push(new Frame(root));
+        int result = 0;
+        while (! stack.isEmpty())
+        {
+            Frame frame = stack.peek();
+            if (frame.iterator.hasNext())
+            {
+                Object val = frame.next();
+                if (! (val instanceof JSONObject) && ! (val instanceof JSONArray))
+                {
+                    frame.add((val == null) ? 0 : val.hashCode());
+                    continue;
+                }
+                cached = structuralHash(val);
+                if (cached != null)
+                {
+                    frame.add(val, cached);
+                }
+                else
+                {
+                    stack.push(new Frame(val));
+                }
+                continue;
+            }
+            stack.pop();
+            result = frame.value;
+            Hash hash = new Hash(result);
+            boolean stored = frame.cacheable && store(frame.container, frame.version, hash);
+            if (! stack.isEmpty())
+            {
+                Frame parent = stack.peek();
+                if (stored)
+                {
+                    parent.add(frame.container, hash);
+                }
+                else
+                {
+                    parent.add(result);
+                    parent.cacheable = false;
+                }
+            }
+        }
+        return result;
+    }
+
+    static boolean similar(Object first, Object second)
+    {
+        Deque<Object> stack = new ArrayDeque<>(16);
+        push(stack, first, second);
+        while (! stack.isEmpty())
+        {
+            Object other = stack.pop();
+            Object val = stack.pop();
+            if (val == other)
+            {
+                continue;
+            }
+            if (val instanceof JSONObject)
+            {
+                if (! (other instanceof JSONObject))
+                {
+                    return false;
+                }
+                JSONObject obj = (JSONObject) val;
+                JSONObject otherObj = (JSONObject) other;
+                if ((obj.length() != otherObj.length()) || (obj.structuralHashCode() != otherObj.structuralHashCode()))
+                {
+                    return false;
+                }
+                for (Entry<String, Object> entry : obj.entrySet())
+                {
+                    Object otherVal = otherObj.opt(entry.getKey());
+                    if (otherVal == null)
+                    {
+                        return false;
+                    }
+                    push(stack, entry.getValue(), otherVal);
+                }
+            }
+            else if (val instanceof JSONArray)
+            {
+                if (! (other instanceof JSONArray))
+                {
+                    return false;
+                }
+                JSONArray array = (JSONArray) val;
+                JSONArray otherArray = (JSONArray) other;
+                if ((array.length() != otherArray.length()) || (array.structuralHashCode() != otherArray.structuralHashCode()))
+                {
+                    return false;
+                }
+                for (int i = 0; i < array.length(); i += 1)
+                {
+                    push(stack, array.opt(i), otherArray.opt(i));
+                }
+            }
+            else if (! val.equals(other))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Object copy(Object val)
+    {
+        if (val instanceof JSONObject)
+        {
+            JSONObject obj = (JSONObject) val;
+            JSONObject copy = new JSONObject(obj.length());
+            for (Entry<String, Object> entry : obj.entrySet())
+            {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        }
+        if (val instanceof JSONArray)
+        {
+            JSONArray array = (JSONArray) val;
+            JSONArray copy = new JSONArray();
+            for (int i = 0; i < array.length(); i += 1)
+            {
+                copy.put(copy(array.opt(i)));
+            }
+            return copy;
+        }
+        return val;
+    }
+
+    static Object freeze(Object val) throws JSONException
+    {
+        if ((val instanceof Map) || (val instanceof Collection) || ((val != null) && val.getClass().isArray()))
+        {
+            val = JSONObject.wrap(val);
+        }
+        if (val instanceof JSONObject)
+        {
+            return ImmutableJSONObject.from((JSONObject) val);
+        }
+        if (val instanceof JSONArray)
+        {
+            return ImmutableJSONArray.from((JSONArray) val);
+        }
+        JSONObject.testValidity(val);
+        return val;
+    }
+
+    static Object thaw(Object val)
+    {
+        if (val instanceof ImmutableJSONObject)
+        {
+            return ((ImmutableJSONObject) val).toJSONObject();
+        }
+        if (val instanceof ImmutableJSONArray)
+        {
+            return ((ImmutableJSONArray) val).toJSONArray();
+        }
+        return val;
+    }
+
+    static Object query(Object doc, List<String> tokens)
+    {
+        Object curr = doc;
+        for (String token : tokens)
+        {
+            if (curr instanceof ImmutableJSONObject)
+            {
+                curr = ((ImmutableJSONObject) curr).opt(token);
+            }
+            else if (curr instanceof ImmutableJSONArray)
+            {
+                curr = ((ImmutableJSONArray) curr).opt(index(token));
+            }
+            else
+            {
+                throw new JSONPointerException("Value[" + curr + "] is not an array or object therefore its key " + token + " cannot be resolved.");
+            }
+            if (curr == null)
+            {
+                return null;
+            }
+        }
+        return curr;
+    }
+
+    static Object withPath(Object node, List<String> tokens, int offset, Object val) throws JSONException
+    {
+        if (offset == tokens.size())
+        {
+            return freeze((val == null) ? JSONObject.NULL : val);
+        }
+        String token = tokens.get(offset);
+        boolean last = offset == (tokens.size() - 1);
+        if (node instanceof ImmutableJSONObject)
+        {
+            ImmutableJSONObject obj = (ImmutableJSONObject) node;
+            if (last)
+            {
+                return obj.with(token, val);
+            }
+            Object child = obj.opt(token);
+            if (child == null)
+            {
+                throw new JSONPointerException("Key " + token + " does not exist.");
+            }
+            return obj.with(token, withPath(child, tokens, offset + 1, val));
+        }
+        if (node instanceof ImmutableJSONArray)
+        {
+            ImmutableJSONArray array = (ImmutableJSONArray) node;
+            int index = "-".equals(token) ? array.length() : index(token);
+            if (last)
+            {
+                if (val == null)
+                {
+                    if (index != (array.length() - 1))
+                    {
+                        throw new JSONPointerException("Only the last element of an ImmutableJSONArray can be removed.");
+                    }
+                    return array.withoutLast();
+                }
+                return array.with(index, val);
+            }
+            Object child = array.opt(index);
+            if (child == null)
+            {
+                throw new JSONPointerException("Index " + token + " is out of bounds - the array has " + array.length() + " elements.");
+            }
+            return array.with(index, withPath(child, tokens, offset + 1, val));
+        }
+        throw new JSONPointerException("Value[" + node + "] is not an array or object therefore its key " + token + " cannot be resolved.");
+    }
+
+    private static int index(String token)
+    {
+        try
+        {
+            return Integer.parseInt(token);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new JSONPointerException(token + " is not an array index.", ex);
+        }
+    }
+
+    private static void push(Deque<Object> stack, Object val, Object other)
+    {
+        stack.push((val == null) ? JSONObject.NULL : val);
+        stack.push((other == null) ? JSONObject.NULL : other);
+    }
+}
\ No newline at end of file
@@ -44,6 +44,8 @@ public class JSONTokener
     private       boolean usePrevious;
     private       long    characterPreviousLine;
 
+    private JSONNumberPolicy numberPolicy = JSONNumberPolicy.DEFAULT;
+
     public JSONTokener(Reader reader)
     {
         this.reader = reader.markSupported() ? reader : new BufferedReader(reader);
@@ -51,6 +53,12 @@ public class JSONTokener
         this.line = 1;
     }
 
+    public JSONTokener(Reader reader, JSONNumberPolicy numberPolicy)
+    {
+        this(reader);
+        this.setNumberPolicy(numberPolicy);
+    }
+
     public JSONTokener(InputStream inputStream)
     {
         this(new InputStreamReader(inputStream));
@@ -61,6 +69,25 @@ public class JSONTokener
         this(new StringReader(src));
     }
 
+    public JSONTokener(String src, JSONNumberPolicy numberPolicy)
+    {
+        this(new StringReader(src), numberPolicy);
+    }
+
+    public JSONNumberPolicy getNumberPolicy()
+    {
+        return this.numberPolicy;
+    }
+
+    public void setNumberPolicy(JSONNumberPolicy numberPolicy)
+    {
+        if (numberPolicy == null)
+        {
+            throw new NullPointerException("Null number policy.");
+        }
+        this.numberPolicy = numberPolicy;
+    }
+
     public void back() throws JSONException
     {
         if (this.usePrevious || (this.index <= 0))
@@ -343,7 +370,6 @@ public class JSONTokener
     public Object nextValue() throws JSONException
     {
         char ch = this.nextClean();
-        String str;
         switch (ch)
         {
             case '"':
@@ -364,12 +390,249 @@ public class JSONTokener
             ch = this.next();
         }
         this.back();
-        str = builder.toString().trim();
-        if (str.isEmpty())
+        int start = 0;
+        int end = builder.length();
+        while ((start < end) && (builder.charAt(start) <= ' '))
+        {
+            start += 1;
+        }
+        while ((end > start) && (builder.charAt(end - 1) <= ' '))
+        {
+            end -= 1;
+        }
+        if (start == end)
         {
             throw this.syntaxError("Missing value,");
         }
-        return JSONObject.stringToValue(str);
+        ch = builder.charAt(start);
+        if (((ch >= '0') && (ch <= '9')) || (ch == '-'))
+        {
+            Object number = this.numberPolicy.toValue(builder, start, end);
+            if (number != null)
+            {
+                return number;
+            }
+        }
+        return this.numberPolicy.stringToValue(builder.substring(start, end));
+    }
+
+    public void skipValue() throws JSONException
+    {
+        String error = this.scanValue();
+        if (error != null)
+        {
+            throw this.syntaxError(error);
+        }
+    }
+
+    long validate() throws JSONException
+    {
+        String error = this.scanValue();
+        if ((error == null) && (this.nextClean() == 0))
+        {
+            return - 1;
+        }
+        return this.eof ? this.index : (this.index - 1);
+    }
+
+    // Walks one value without building it. Nesting is tracked in an explicit stack rather than by
+    // recursion, so deeply nested input cannot overflow the thread stack. Each open container has
+    // one entry: '[' for an array, '{' while an object key is being read and '}' while an object
+    // member value is being read.
+    private String scanValue() throws JSONException
+    {
+        StringBuilder open = new StringBuilder(16);
+        boolean value = true;
+        while (true)
+        {
+            char ch;
+            if (value)
+            {
+                ch = this.nextClean();
+                switch (ch)
+                {
+                    case '"':
+                    case '\'':
+                        String error = this.scanString(ch);
+                        if (error != null)
+                        {
+                            return error;
+                        }
+                        break;
+                    case '{':
+                        ch = this.nextClean();
+                        if (ch == 0)
+                        {
+                            return "A JSONObject text must end with '}'.";
+                        }
+                        if (ch != '}')
+                        {
+                            this.back();
+                            open.append('{');
+                            continue;
+                        }
+                        break;
+                    case '[':
+                        ch = this.nextClean();
+                        if (ch == 0)
+                        {
+                            return "A JSONArray text must end with ']'.";
+                        }
+                        if (ch != ']')
+                        {
+                            this.back();
+                            open.append('[');
+                            if (ch != ',')
+                            {
+                                continue;
+                            }
+                        }
+                        break;
+                    default:
+                        if (this.scanLiteral(ch) == 0)
+                        {
+                            return "Missing value,";
+                        }
+                }
+            }
+            value = false;
+            int top = open.length() - 1;
+            if (top < 0)
+            {
+                return null;
+            }
+            switch (open.charAt(top))
+            {
+                case '{':
+                    if (this.nextClean() != ':')
+                    {
+                        return "Expected a ':' after a key.";
+                    }
+                    open.setCharAt(top, '}');
+                    value = true;
+                    break;
+                case '}':
+                    switch (this.nextClean())
+                    {
+                        case ';':
+                        case ',':
+                            if (this.nextClean() == '}')
+                            {
+                                open.setLength(top);
+                                break;
+                            }
+                            this.back();
+                            ch = this.nextClean();
+                            if (ch == 0)
+                            {
+                                return "A JSONObject text must end with '}'.";
+                            }
+                            if (ch == '}')
+                            {
+                                open.setLength(top);
+                                break;
+                            }
+                            this.back();
+                            open.setCharAt(top, '{');
+                            value = true;
+                            break;
+                        case '}':
+                            open.setLength(top);
+                            break;
+                        default:
+                            return "Expected a ',' or '}'.";
+                    }
+                    break;
+                default:
+                    switch (this.nextClean())
+                    {
+                        case ',':
+                            ch = this.nextClean();
+                            if (ch == 0)
+                            {
+                                return "A JSONArray text must end with ']'.";
+                            }
+                            if (ch == ']')
+                            {
+                                open.setLength(top);
+                                break;
+                            }
+                            this.back();
+                            value = ch != ',';
+                            break;
+                        case ']':
+                            open.setLength(top);
+                            break;
+                        default:
+                            return "Expected a ',' or ']'.";
+                    }
+            }
+        }
+    }
+
+    private int scanLiteral(char ch) throws JSONException
+    {
+        int length = 0;
+        while ((ch >= ' ') && (",:]}/\\\"[{;=#".indexOf(ch) < 0))
+        {
+            if (ch > ' ')
+            {
+                length += 1;
+            }
+            ch = this.next();
+        }
+        if (ch != 0)
+        {
+            this.back();
+        }
+        return length;
+    }
+
+    private String scanString(char quote) throws JSONException
+    {
+        while (true)
+        {
+            char ch = this.next();
+            switch (ch)
+            {
+                case 0:
+                case '\n':
+                case '\r':
+                    return "Unterminated string.";
+                case '\\':
+                    ch = this.next();
+                    switch (ch)
+                    {
+                        case 'b':
+                        case 't':
+                        case 'n':
+                        case 'f':
+                        case 'r':
+                        case '"':
+                        case '\'':
+                        case '\\':
+                        case '/':
+                            break;
+                        case 'u':
+                            for (int i = 0; i < 4; i += 1)
+                            {
+                                if (dehexchar(this.next()) < 0)
+                                {
+                                    return "Illegal escape.";
+                                }
+                            }
+                            break;
+                        default:
+                            return "Illegal escape.";
+                    }
+                    break;
+                default:
+                    if (ch == quote)
+                    {
+                        return null;
+                    }
+            }
+        }
     }
 
     public char skipTo(char to) throws JSONException
@@ -405,12 +668,12 @@ public class JSONTokener
 
     public JSONException syntaxError(String msg)
     {
-        return new JSONException(msg + this.toString());
+        return new JSONException(msg, this.index, this.character, this.line, null);
     }
 
     public JSONException syntaxError(String msg, Throwable cause)
     {
-        return new JSONException(msg + this.toString(), cause);
+        return new JSONException(msg, this.index, this.character, this.line, cause);
     }
 
     @Override
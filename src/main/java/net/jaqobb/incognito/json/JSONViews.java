@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.json;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.RandomAccess;
+import java.util.Set;
+
+final class JSONViews
+{
+    private JSONViews()
+    {
+    }
+
+    static Object view(Object val)
+    {
+        if ((val == null) || JSONObject.NULL.equals(val))
+        {
+            return null;
+        }
+        if (val instanceof JSONObject)
+        {
+            return new MapView((JSONObject) val);
+        }
+        if (val instanceof JSONArray)
+        {
+            return new ListView((JSONArray) val);
+        }
+        return val;
+    }
+
+    static final class MapView extends AbstractMap<String, Object>
+    {
+        private final JSONObject                 obj;
+        private       Set<Entry<String, Object>> entrySet;
+
+        MapView(JSONObject obj)
+        {
+            this.obj = obj;
+        }
+
+        @Override
+        public Object get(Object key)
+        {
+            return (key instanceof String) ? view(this.obj.opt((String) key)) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return (key instanceof String) && this.obj.has((String) key);
+        }
+
+        @Override
+        public int size()
+        {
+            return this.obj.length();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet()
+        {
+            if (this.entrySet == null)
+            {
+                this.entrySet = new AbstractSet<Entry<String, Object>>()
+                {
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator()
+                    {
+                        Iterator<Entry<String, Object>> iterator = MapView.this.obj.entrySet().iterator();
+                        return new Iterator<Entry<String, Object>>()
+                        {
+                            @Override
+                            public boolean hasNext()
+                            {
+                                return iterator.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, Object> next()
+                            {
+                                Entry<String, Object> entry = iterator.next();
+                                return new SimpleImmutableEntry<>(entry.getKey(), view(entry.getValue()));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size()
+                    {
+                        return MapView.this.obj.length();
+                    }
+                };
+            }
+            return this.entrySet;
+        }
+    }
+
+    static final class ListView extends AbstractList<Object> implements RandomAccess
+    {
+        private final JSONArray array;
+
+        ListView(JSONArray array)
+        {
+            this.array = array;
+        }
+
+        @Override
+        public Object get(int index)
+        {
+            if ((index < 0) || (index >= this.array.length()))
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.array.length());
+            }
+            return view(this.array.opt(index));
+        }
+
+        @Override
+        public int size()
+        {
+            return this.array.length();
+        }
+    }
+}
\ No newline at end of file
@@ -194,7 +194,11 @@ public class JSONWriter
 
     public JSONWriter value(double val) throws JSONException
     {
-        return this.value((Object) val);
+        if (Double.isInfinite(val) || Double.isNaN(val))
+        {
+            throw new JSONException("JSON does not allow infinite numbers.");
+        }
+        return this.append(JSONFloatingDecimal.toString(val));
     }
 
     public JSONWriter value(long val) throws JSONException
@@ -25,30 +25,20 @@
 package net.jaqobb.incognito.main;
 
 import javax.swing.JOptionPane;
-import javax.swing.UIManager;
 
 import java.lang.instrument.Instrumentation;
+import java.util.concurrent.TimeUnit;
 
 import net.jaqobb.incognito.IncognitoLauncher;
-import net.jaqobb.incognito.utils.IncognitoUtils;
+import net.jaqobb.incognito.metrics.JFREvents;
+import net.jaqobb.incognito.metrics.MetricsRegistry;
 import net.jaqobb.incognito.utils.IncognitoWindowUtils;
 
 public final class Bootstrap
 {
-    private static final float JAVA_8_VERSION = 52.0F;
-
-    static
-    {
-        try
-        {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        }
-        catch (Exception ex)
-        {
-            IncognitoWindowUtils.showErrorDialog(null, IncognitoUtils.getStackTrace(ex));
-            System.exit(- 1);
-        }
-    }
+    private static final float  JAVA_8_VERSION                = 52.0F;
+    private static final String STARTUP_BUDGET_PROPERTY       = "incognito.agent.startupBudget";
+    private static final long   DEFAULT_STARTUP_BUDGET_MILLIS = 50L;
 
     private Bootstrap()
     {
@@ -56,9 +46,10 @@ public final class Bootstrap
 
     public static void main(String[] args)
     {
-        if (Float.parseFloat(System.getProperty("java.class.version")) < JAVA_8_VERSION)
+        IncognitoWindowUtils.installLookAndFeel();
+        if (! isJava8OrAbove())
         {
-            JOptionPane.showMessageDialog(null, "Error", "Incognito requires Java 8 or above to function!", JOptionPane.ERROR_MESSAGE);
+            IncognitoWindowUtils.showMessageDialog(null, "Incognito requires Java 8 or above to function!", "Error", JOptionPane.ERROR_MESSAGE);
             System.exit(- 1);
             return;
         }
@@ -67,12 +58,26 @@ public final class Bootstrap
 
     public static void premain(String args, Instrumentation inst)
     {
-        if (Float.parseFloat(System.getProperty("java.class.version")) < JAVA_8_VERSION)
+        long start = System.nanoTime();
+        if (! isJava8OrAbove())
         {
-            JOptionPane.showMessageDialog(null, "Error", "Incognito requires Java 8 or above to function!", JOptionPane.ERROR_MESSAGE);
-            System.exit(- 1);
+            System.err.println("[Incognito] Incognito requires Java 8 or above to function!");
             return;
         }
         IncognitoLauncher.launchAgent(args, inst);
+        long elapsedNanos = System.nanoTime() - start;
+        MetricsRegistry.global().histogram("agent.premain.nanos").record(elapsedNanos);
+        JFREvents.emitDeferred(JFREvents.Type.AGENT_PHASE, elapsedNanos, "premain");
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        long budget = Long.getLong(STARTUP_BUDGET_PROPERTY, DEFAULT_STARTUP_BUDGET_MILLIS);
+        if (elapsed > budget)
+        {
+            System.err.println("[Incognito] Agent startup took " + elapsed + " ms, exceeding its budget of " + budget + " ms.");
+        }
+    }
+
+    private static boolean isJava8OrAbove()
+    {
+        return Float.parseFloat(System.getProperty("java.class.version")) >= JAVA_8_VERSION;
     }
 }
\ No newline at end of file
@@ -0,0 +1,351 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.metrics;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import net.jaqobb.incognito.json.JSON;
+
+public final class JFREvents
+{
+    public enum Type
+    {
+        AGENT_PHASE("AgentPhase", "Agent Phase", new String[] {"phase"}, new Class<?>[] {String.class}),
+        CLASS_TRANSFORM("ClassTransform", "Class Transform", new String[] {"className", "modified"}, new Class<?>[] {String.class, boolean.class}),
+        JSON_PARSE("JSONParse", "JSON Parse", new String[] {"length"}, new Class<?>[] {int.class}),
+        JSON_SERIALIZE("JSONSerialize", "JSON Serialize", new String[] {"length"}, new Class<?>[] {int.class}),
+        PROFILE_READ("ProfileRead", "Profile Read", new String[] {"path", "length"}, new Class<?>[] {String.class, long.class});
+
+        private final String     name;
+        private final String     label;
+        private final String[]   fieldNames;
+        private final Class<?>[] fieldTypes;
+
+        Type(String name, String label, String[] fieldNames, Class<?>[] fieldTypes)
+        {
+            this.name = name;
+            this.label = label;
+            this.fieldNames = fieldNames;
+            this.fieldTypes = fieldTypes;
+        }
+    }
+
+    private static volatile int state;
+
+    private static final List<Object[]> deferred = new ArrayList<>(4);
+
+    private static final class Recorder
+    {
+        private static final MethodHandle IS_INITIALIZED;
+
+        static
+        {
+            MethodHandle isInitialized = null;
+            try
+            {
+                Class<?> recorderClass = Class.forName("jdk.jfr.FlightRecorder", false, ClassLoader.getSystemClassLoader());
+                isInitialized = MethodHandles.publicLookup().findStatic(recorderClass, "isInitialized", MethodType.methodType(boolean.class));
+            }
+            catch (Throwable ignored)
+            {
+            }
+            IS_INITIALIZED = isInitialized;
+        }
+
+        static boolean isInitialized()
+        {
+            try
+            {
+                return (IS_INITIALIZED != null) && (boolean) IS_INITIALIZED.invokeExact();
+            }
+            catch (Throwable throwable)
+            {
+                return false;
+            }
+        }
+    }
+
+    private static final class Support
+    {
+        private static final boolean      AVAILABLE;
+        private static final Object[]     FACTORIES   = new Object[Type.values().length];
+        private static final Object[]     EVENT_TYPES = new Object[Type.values().length];
+        private static final MethodHandle NEW_EVENT;
+        private static final MethodHandle IS_ENABLED;
+        private static final MethodHandle SET;
+        private static final MethodHandle COMMIT;
+
+        static
+        {
+            boolean available = false;
+            MethodHandle newEvent = null;
+            MethodHandle isEnabled = null;
+            MethodHandle set = null;
+            MethodHandle commit = null;
+            try
+            {
+                ClassLoader loader = ClassLoader.getSystemClassLoader();
+                Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory", false, loader);
+                Class<?> eventClass = Class.forName("jdk.jfr.Event", false, loader);
+                Class<?> eventTypeClass = Class.forName("jdk.jfr.EventType", false, loader);
+                Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement", false, loader);
+                Class<?> descriptorClass = Class.forName("jdk.jfr.ValueDescriptor", false, loader);
+                Constructor<?> annotation = annotationClass.getConstructor(Class.class, Object.class);
+                Constructor<?> descriptor = descriptorClass.getConstructor(Class.class, String.class, List.class);
+                Class<?> nameClass = Class.forName("jdk.jfr.Name", false, loader);
+                Class<?> labelClass = Class.forName("jdk.jfr.Label", false, loader);
+                Class<?> categoryClass = Class.forName("jdk.jfr.Category", false, loader);
+                Class<?> stackTraceClass = Class.forName("jdk.jfr.StackTrace", false, loader);
+                Class<?> timespanClass = Class.forName("jdk.jfr.Timespan", false, loader);
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                MethodHandle create = lookup.findStatic(factoryClass, "create", MethodType.methodType(factoryClass, List.class, List.class));
+                MethodHandle getEventType = lookup.findVirtual(factoryClass, "getEventType", MethodType.methodType(eventTypeClass));
+                for (Type type : Type.values())
+                {
+                    List<Object> annotations = new ArrayList<>(4);
+                    annotations.add(annotation.newInstance(nameClass, "net.jaqobb.incognito." + type.name));
+                    annotations.add(annotation.newInstance(labelClass, type.label));
+                    annotations.add(annotation.newInstance(categoryClass, new String[] {"Incognito"}));
+                    annotations.add(annotation.newInstance(stackTraceClass, false));
+                    List<Object> fields = new ArrayList<>(type.fieldNames.length + 1);
+                    fields.add(descriptor.newInstance(long.class, "elapsed", Arrays.asList(newArray(annotationClass, annotation.newInstance(timespanClass, "NANOSECONDS")))));
+                    for (int i = 0; i < type.fieldNames.length; i += 1)
+                    {
+                        fields.add(descriptor.newInstance(type.fieldTypes[i], type.fieldNames[i], new ArrayList<>(0)));
+                    }
+                    Object factory = create.invoke(annotations, fields);
+                    FACTORIES[type.ordinal()] = factory;
+                    EVENT_TYPES[type.ordinal()] = getEventType.invoke(factory);
+                }
+                newEvent = lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass)).asType(MethodType.methodType(Object.class, Object.class));
+                isEnabled = lookup.findVirtual(eventTypeClass, "isEnabled", MethodType.methodType(boolean.class)).asType(MethodType.methodType(boolean.class, Object.class));
+                set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class)).asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+                commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class)).asType(MethodType.methodType(void.class, Object.class));
+                available = true;
+            }
+            catch (Throwable ignored)
+            {
+            }
+            AVAILABLE = available;
+            NEW_EVENT = newEvent;
+            IS_ENABLED = isEnabled;
+            SET = set;
+            COMMIT = commit;
+        }
+
+        private static Object[] newArray(Class<?> type, Object element)
+        {
+            Object[] array = (Object[]) Array.newInstance(type, 1);
+            array[0] = element;
+            return array;
+        }
+    }
+
+    private JFREvents()
+    {
+    }
+
+    private static boolean isActive()
+    {
+        int state = JFREvents.state;
+        if (state == 0)
+        {
+            if (Recorder.IS_INITIALIZED == null)
+            {
+                state = - 1;
+            }
+            else if (Recorder.isInitialized())
+            {
+                state = Support.AVAILABLE ? 1 : - 1;
+            }
+            else
+            {
+                return false;
+            }
+            JFREvents.state = state;
+        }
+        return state > 0;
+    }
+
+    public static boolean isEnabled(Type type)
+    {
+        if (! isActive())
+        {
+            return false;
+        }
+        try
+        {
+            return (boolean) Support.IS_ENABLED.invokeExact(Support.EVENT_TYPES[type.ordinal()]);
+        }
+        catch (Throwable throwable)
+        {
+            return false;
+        }
+    }
+
+    public static void emit(Type type, long elapsedNanos, Object... values)
+    {
+        if (! isEnabled(type))
+        {
+            return;
+        }
+        try
+        {
+            Object event = (Object) Support.NEW_EVENT.invokeExact(Support.FACTORIES[type.ordinal()]);
+            Support.SET.invokeExact(event, 0, (Object) elapsedNanos);
+            for (int i = 0; i < values.length; i += 1)
+            {
+                Support.SET.invokeExact(event, i + 1, values[i]);
+            }
+            Support.COMMIT.invokeExact(event);
+        }
+        catch (Throwable ignored)
+        {
+        }
+    }
+
+    // Agent phases end before -XX:StartFlightRecording has brought the recorder up, so emitting them
+    // directly would drop them. They are held back instead and committed by the listener that
+    // installRecorderListener registers once a recording enables them; the elapsed field keeps
+    // the original duration, while the event timestamp is the time of the commit.
+    public static void emitDeferred(Type type, long elapsedNanos, Object... values)
+    {
+        if (isActive())
+        {
+            emit(type, elapsedNanos, values);
+            return;
+        }
+        if ((Recorder.IS_INITIALIZED == null) || (state < 0))
+        {
+            return;
+        }
+        Object[] event = new Object[values.length + 2];
+        event[0] = type;
+        event[1] = elapsedNanos;
+        System.arraycopy(values, 0, event, 2, values.length);
+        synchronized (deferred)
+        {
+            deferred.add(event);
+        }
+    }
+
+    // Registers a jdk.jfr.FlightRecorderListener through a proxy, so the Java 8 build keeps no
+    // static reference to jdk.jfr. Meant to run off the startup path, since it loads the recorder
+    // classes.
+    public static void installRecorderListener()
+    {
+        if (Recorder.IS_INITIALIZED == null)
+        {
+            return;
+        }
+        try
+        {
+            ClassLoader loader = ClassLoader.getSystemClassLoader();
+            Class<?> recorderClass = Class.forName("jdk.jfr.FlightRecorder", false, loader);
+            Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener", false, loader);
+            Object listener = Proxy.newProxyInstance(loader, new Class<?>[] {listenerClass}, (proxy, method, args) ->
+            {
+                switch (method.getName())
+                {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Incognito JFR listener";
+                    default:
+                        flushDeferred();
+                        return null;
+                }
+            });
+            recorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+        }
+        catch (Throwable throwable)
+        {
+            System.err.println("[Incognito] Could not listen for JFR recordings: " + throwable);
+        }
+        flushDeferred();
+    }
+
+    private static void flushDeferred()
+    {
+        synchronized (deferred)
+        {
+            Iterator<Object[]> iterator = deferred.iterator();
+            while (iterator.hasNext())
+            {
+                Object[] event = iterator.next();
+                Type type = (Type) event[0];
+                if (isEnabled(type))
+                {
+                    emit(type, (Long) event[1], Arrays.copyOfRange(event, 2, event.length));
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public static JSON.Listener jsonListener(JSON.Listener delegate, int threshold)
+    {
+        return new JSON.Listener()
+        {
+            @Override
+            public void parsed(int length, long nanos)
+            {
+                if (delegate != null)
+                {
+                    delegate.parsed(length, nanos);
+                }
+                if ((length >= threshold) && isEnabled(Type.JSON_PARSE))
+                {
+                    emit(Type.JSON_PARSE, nanos, length);
+                }
+            }
+
+            @Override
+            public void serialized(int length, long nanos)
+            {
+                if (delegate != null)
+                {
+                    delegate.serialized(length, nanos);
+                }
+                if ((length >= threshold) && isEnabled(Type.JSON_SERIALIZE))
+                {
+                    emit(Type.JSON_SERIALIZE, nanos, length);
+                }
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.metrics;
+
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.jaqobb.incognito.utils.IncognitoUtils;
+
+public final class MetricsFileExporter implements AutoCloseable
+{
+    private final MetricsRegistry          registry;
+    private final Path                     file;
+    private final long                     intervalMillis;
+    private final long                     maxBytes;
+    private final int                      maxFiles;
+    private final ScheduledExecutorService scheduler;
+    private final Buffer                   chars   = new Buffer();
+    private final CharsetEncoder           encoder = StandardCharsets.UTF_8.newEncoder();
+    private       ByteBuffer               bytes   = ByteBuffer.allocate(8192);
+    private       FileChannel              channel;
+
+    private static final class Buffer extends CharArrayWriter
+    {
+        Buffer()
+        {
+            super(4096);
+        }
+
+        CharBuffer chars()
+        {
+            return CharBuffer.wrap(this.buf, 0, this.count);
+        }
+    }
+
+    public MetricsFileExporter(MetricsRegistry registry, File file, long intervalMillis, long maxBytes, int maxFiles)
+    {
+        if ((intervalMillis <= 0L) || (maxBytes <= 0L) || (maxFiles < 1))
+        {
+            throw new IllegalArgumentException("Interval, maximum size and maximum file count must be positive.");
+        }
+        this.registry = registry;
+        this.file = file.toPath();
+        this.intervalMillis = intervalMillis;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(IncognitoUtils.newDaemonThreadFactory("Incognito Metrics Exporter", Thread.MIN_PRIORITY));
+    }
+
+    public void start()
+    {
+        this.scheduler.scheduleWithFixedDelay(this::exportQuietly, this.intervalMillis, this.intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void exportQuietly()
+    {
+        try
+        {
+            this.export();
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            System.err.println("[Incognito] Could not export metrics: " + ex);
+            this.closeChannel();
+        }
+    }
+
+    synchronized void export() throws IOException
+    {
+        this.chars.reset();
+        this.registry.snapshot().write(this.chars);
+        this.chars.write('\n');
+        this.encode();
+        if (this.channel == null)
+        {
+            Files.createDirectories(this.file.toAbsolutePath().getParent());
+            this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        if ((this.channel.size() > 0L) && ((this.channel.size() + this.bytes.remaining()) > this.maxBytes))
+        {
+            this.rotate();
+        }
+        while (this.bytes.hasRemaining())
+        {
+            this.channel.write(this.bytes);
+        }
+    }
+
+    private void encode()
+    {
+        CharBuffer input = this.chars.chars();
+        this.encoder.reset();
+        this.bytes.clear();
+        while (true)
+        {
+            CoderResult result = input.hasRemaining() ? this.encoder.encode(input, this.bytes, true) : CoderResult.UNDERFLOW;
+            if (result.isUnderflow())
+            {
+                result = this.encoder.flush(this.bytes);
+            }
+            if (result.isUnderflow())
+            {
+                break;
+            }
+            ByteBuffer grown = ByteBuffer.allocate(this.bytes.capacity() * 2);
+            this.bytes.flip();
+            grown.put(this.bytes);
+            this.bytes = grown;
+        }
+        this.bytes.flip();
+    }
+
+    private void rotate() throws IOException
+    {
+        this.closeChannel();
+        String name = this.file.getFileName().toString();
+        Files.deleteIfExists(this.file.resolveSibling(name + "." + this.maxFiles));
+        for (int i = this.maxFiles - 1; i >= 1; i -= 1)
+        {
+            Path source = this.file.resolveSibling(name + "." + i);
+            if (Files.exists(source))
+            {
+                Files.move(source, this.file.resolveSibling(name + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(this.file, this.file.resolveSibling(name + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private synchronized void closeChannel()
+    {
+        if (this.channel != null)
+        {
+            try
+            {
+                this.channel.close();
+            }
+            catch (IOException ignored)
+            {
+            }
+            this.channel = null;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.scheduler.shutdown();
+        try
+        {
+            this.scheduler.awaitTermination(10L, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        this.exportQuietly();
+        this.closeChannel();
+    }
+}
\ No newline at end of file
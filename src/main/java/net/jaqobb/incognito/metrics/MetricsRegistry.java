@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017. Incognito (by Jakub Zagórski (aka Jaqobb))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.jaqobb.incognito.metrics;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import net.jaqobb.incognito.json.JSON;
+import net.jaqobb.incognito.json.JSONObject;
+
+public final class MetricsRegistry
+{
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Map<String, Object> metrics = new ConcurrentHashMap<>(32);
+
+    public static MetricsRegistry global()
+    {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name)
+    {
+        return this.get(name, Counter.class, key -> new Counter());
+    }
+
+    public Gauge gauge(String name, LongSupplier supplier)
+    {
+        return this.get(name, Gauge.class, key -> new Gauge(supplier));
+    }
+
+    public Histogram histogram(String name)
+    {
+        return this.get(name, Histogram.class, key -> new Histogram());
+    }
+
+    private <T> T get(String name, Class<T> type, Function<String, T> factory)
+    {
+        Object metric = this.metrics.get(name);
+        if (metric == null)
+        {
+            metric = this.metrics.computeIfAbsent(name, factory);
+        }
+        if (! type.isInstance(metric))
+        {
+            throw new IllegalArgumentException("Metric " + name + " is a " + metric.getClass().getSimpleName() + ", not a " + type.getSimpleName() + ".");
+        }
+        return type.cast(metric);
+    }
+
+    public void installJSONListener()
+    {
+        Histogram parse = this.histogram("json.parse.nanos");
+        Histogram serialize = this.histogram("json.serialize.nanos");
+        Counter parsedChars = this.counter("json.parse.chars");
+        Counter serializedChars = this.counter("json.serialize.chars");
+        JSON.setListener(new JSON.Listener()
+        {
+            @Override
+            public void parsed(int length, long nanos)
+            {
+                parse.record(nanos);
+                parsedChars.add(length);
+            }
+
+            @Override
+            public void serialized(int length, long nanos)
+            {
+                serialize.record(nanos);
+                serializedChars.add(length);
+            }
+        });
+    }
+
+    public JSONObject snapshot()
+    {
+        JSONObject counters = new JSONObject();
+        JSONObject gauges = new JSONObject();
+        JSONObject histograms = new JSONObject();
+        for (Entry<String, Object> entry : this.metrics.entrySet())
+        {
+            Object metric = entry.getValue();
+            if (metric instanceof Counter)
+            {
+                counters.put(entry.getKey(), ((Counter) metric).sum());
+            }
+            else if (metric instanceof Gauge)
+            {
+                gauges.put(entry.getKey(), ((Gauge) metric).value());
+            }
+            else
+            {
+                histograms.put(entry.getKey(), ((Histogram) metric).toJSON());
+            }
+        }
+        JSONObject snapshot = new JSONObject();
+        snapshot.put("timestamp", System.currentTimeMillis());
+        snapshot.put("counters", counters);
+        snapshot.put("gauges", gauges);
+        snapshot.put("histograms", histograms);
+        return snapshot;
+    }
+}
\ No newline at end of file
@@ -25,6 +25,7 @@
 package net.jaqobb.incognito.utils;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -32,6 +33,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class IncognitoUtils
 {
@@ -118,6 +121,18 @@ public final class IncognitoUtils
         }
     }
 
+    public static ThreadFactory newDaemonThreadFactory(String name, int priority)
+    {
+        AtomicInteger count = new AtomicInteger();
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, name + " #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+
     public static String readFile(File file) throws IOException
     {
         return readText(new FileInputStream(file), DEFAULT_ENCODING);
@@ -128,6 +143,20 @@ public final class IncognitoUtils
         return readText(new FileInputStream(file), encoding);
     }
 
+    public static byte[] readBytes(InputStream input) throws IOException
+    {
+        try (InputStream in = input; ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(1024, in.available())))
+        {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0)
+            {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
     public static String readText(InputStream input) throws IOException
     {
         return readText(input, DEFAULT_ENCODING);
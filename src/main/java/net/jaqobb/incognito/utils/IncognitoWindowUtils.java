@@ -27,6 +27,7 @@ package net.jaqobb.incognito.utils;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.UIManager;
 
 import java.awt.Component;
 import java.awt.Dimension;
@@ -35,18 +36,51 @@ import java.awt.Font;
 @SuppressWarnings("DynamicRegexReplaceableByCompiledPattern")
 public final class IncognitoWindowUtils
 {
+    private static volatile boolean lookAndFeelInstalled;
+
     private IncognitoWindowUtils()
     {
     }
 
+    public static void installLookAndFeel()
+    {
+        if (lookAndFeelInstalled)
+        {
+            return;
+        }
+        synchronized (IncognitoWindowUtils.class)
+        {
+            if (lookAndFeelInstalled)
+            {
+                return;
+            }
+            try
+            {
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            }
+            catch (Exception ex)
+            {
+                System.err.println("Could not install the system look and feel: " + ex);
+            }
+            lookAndFeelInstalled = true;
+        }
+    }
+
+    public static void showMessageDialog(Component parent, String message, String title, int messageType)
+    {
+        installLookAndFeel();
+        JOptionPane.showMessageDialog(parent, message, title, messageType);
+    }
+
     public static void showErrorDialog(Component parent, String stackTrace)
     {
+        installLookAndFeel();
         stackTrace = stackTrace.replace("\t", "  ");
         JTextArea textArea = new JTextArea(stackTrace);
         textArea.setEditable(false);
         textArea.setFont(new Font("Monospaced", textArea.getFont().getStyle(), textArea.getFont().getSize()));
         JScrollPane scrollPane = new JScrollPane(textArea);
         scrollPane.setPreferredSize(new Dimension(600, 400));
-        JOptionPane.showMessageDialog(null, scrollPane, "Error", JOptionPane.ERROR_MESSAGE);
+        JOptionPane.showMessageDialog(parent, scrollPane, "Error", JOptionPane.ERROR_MESSAGE);
     }
 }
\ No newline at end of file